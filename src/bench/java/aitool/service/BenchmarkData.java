@@ -0,0 +1,86 @@
+package aitool.service;
+
+/**
+ * 基准测试共用的输入数据：真实风格的中英文需求和AI返回内容
+ */
+final class BenchmarkData {
+
+    /**
+     * 用户需求（中文、英文、中英混合，长短不一）
+     */
+    static final String[] REQUESTS = {
+        "生成一个计算器工具",
+        "计算器",
+        "帮我做一个房贷计算器，支持等额本息和等额本金两种还款方式",
+        "JSON格式化工具",
+        "做一个json格式化页面，可以折叠和高亮显示",
+        "CSV转JSON转换器",
+        "文本批量替换工具，支持正则表达式",
+        "BMI计算器",
+        "倒计时器",
+        "二维码生成器",
+        "随机密码生成器，可以选择长度和字符类型",
+        "Markdown编辑器",
+        "单位换算工具（长度、重量、温度）",
+        "正则表达式测试工具",
+        "时间戳转换工具",
+        "Base64编解码工具",
+        "番茄钟计时器",
+        "table generator",
+        "Create a simple unit converter with length and weight",
+        "json formatter",
+        "Build a todo list app with local storage",
+        "做一个 todo list，支持拖拽排序",
+        "生成一个颜色选择器，输出HEX和RGB",
+        "个税计算器 2024版",
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 构造约targetBytes大小的AI返回内容
+     * @param prose 是否在HTML前后带说明文字
+     * @param fenced 是否用markdown代码块包裹HTML
+     */
+    static String aiResponse(int targetBytes, boolean prose, boolean fenced) {
+        StringBuilder html = new StringBuilder(targetBytes + 1024);
+        html.append("<!DOCTYPE html>\n<html lang=\"zh-CN\">\n<head>\n<meta charset=\"UTF-8\">\n")
+            .append("<title>房贷计算器</title>\n<style>\n");
+        int rule = 0;
+        while (html.length() < targetBytes / 3) {
+            html.append(".row-").append(rule++).append(" { display: flex; gap: 8px; padding: 4px 12px; color: #333; }\n");
+        }
+        html.append("</style>\n</head>\n<body>\n<div class=\"container\">\n");
+        int row = 0;
+        while (html.length() < targetBytes * 2 / 3) {
+            html.append("  <div class=\"row-").append(row % rule).append("\"><label>第").append(row)
+                .append("期</label><input type=\"number\" id=\"amount-").append(row).append("\"></div>\n");
+            row++;
+        }
+        html.append("</div>\n<script>\n");
+        int fn = 0;
+        while (html.length() < targetBytes) {
+            html.append("function calc").append(fn).append("(p, r, n) { // 等额本息月供\n")
+                .append("  const m = r / 12; return p * m * Math.pow(1 + m, n) / (Math.pow(1 + m, n) - 1);\n}\n");
+            fn++;
+        }
+        html.append("</script>\n</body>\n</html>");
+
+        StringBuilder response = new StringBuilder(html.length() + 256);
+        if (prose) {
+            response.append("好的，下面是根据你的需求生成的房贷计算器页面，包含完整的HTML、CSS和JavaScript：\n\n");
+        }
+        if (fenced) {
+            response.append("```html\n");
+        }
+        response.append(html);
+        if (fenced) {
+            response.append("\n```");
+        }
+        if (prose) {
+            response.append("\n\n把上面的代码保存为 .html 文件后直接用浏览器打开即可使用。");
+        }
+        return response.toString();
+    }
+}
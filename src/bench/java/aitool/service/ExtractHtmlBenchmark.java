@@ -0,0 +1,78 @@
+package aitool.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从AI返回内容中提取HTML的基准，返回内容约50KB
+ * extractHtml：阻塞调用，整段提取（AIClient.extractHtml）；extractStream：流式调用，按40字符的片段增量提取并回调
+ * shape：plain（纯HTML）、fenced（markdown代码块）、prose（代码块前后带说明文字）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractHtmlBenchmark {
+
+    private static final int RESPONSE_BYTES = 50 * 1024;
+    private static final int CHUNK_CHARS = 40;
+
+    @Param({"plain", "fenced", "prose"})
+    public String shape;
+
+    private String response;
+    private String[] chunks;
+    private AIClient client;
+
+    @Setup
+    public void setUp() {
+        response = BenchmarkData.aiResponse(RESPONSE_BYTES, "prose".equals(shape), !"plain".equals(shape));
+        chunks = new String[(response.length() + CHUNK_CHARS - 1) / CHUNK_CHARS];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = response.substring(i * CHUNK_CHARS, Math.min(response.length(), (i + 1) * CHUNK_CHARS));
+        }
+        client = new AIClient() {
+            @Override
+            public String generateHtmlTool(String userRequest, String systemPrompt) {
+                return response;
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public String getClientName() {
+                return "bench";
+            }
+        };
+    }
+
+    @Benchmark
+    public String extractHtml() {
+        return client.extractHtml(response);
+    }
+
+    @Benchmark
+    public String extractStream(Blackhole blackhole) {
+        HtmlStreamExtractor extractor = new HtmlStreamExtractor(blackhole::consume);
+        for (String chunk : chunks) {
+            extractor.accept(chunk);
+        }
+        return extractor.finish();
+    }
+}
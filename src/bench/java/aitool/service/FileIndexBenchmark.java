@@ -0,0 +1,71 @@
+package aitool.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已生成文件查找（HtmlGenerator.findExistingFile）的基准：提取需求关键词后在output目录的文件索引中匹配
+ * 读取命中文件内容的部分由HTML内容缓存负责，不在本基准范围内
+ * 目录中的文件按生成结果存储的命名规则（关键词_内容哈希.html）创建
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileIndexBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int fileCount;
+
+    private File dir;
+    private OutputFileIndex fileIndex;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("file-index-bench").toFile();
+        for (int i = 0; i < fileCount; i++) {
+            String request = BenchmarkData.REQUESTS[i % BenchmarkData.REQUESTS.length];
+            String filename = FilenameGenerator.generateBaseName(request) + "_" + String.format("%012x", i) + ".html";
+            Files.write(new File(dir, filename).toPath(), new byte[0]);
+        }
+        fileIndex = new OutputFileIndex(dir);
+        fileIndex.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fileIndex.close();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public File findExistingFile() {
+        String request = BenchmarkData.REQUESTS[next++ % BenchmarkData.REQUESTS.length];
+        return fileIndex.findBestMatch(HtmlGenerator.extractKeywords(request));
+    }
+}
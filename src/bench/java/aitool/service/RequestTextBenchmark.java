@@ -0,0 +1,65 @@
+package aitool.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 需求文本处理的基准：关键词提取、文件名生成、简单示例需求的快捷模板路由（HtmlGenerator.getSimpleExampleTemplate）
+ * 每次调用依次取一条中英文需求
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestTextBenchmark {
+
+    private ShortcutRouter shortcutRouter;
+    private Set<String> tools;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        shortcutRouter = ShortcutRouter.load();
+        // 与HtmlGenerator注册的工具一致
+        tools = new HashSet<>(Templates.names());
+        tools.add("table");
+        tools.add("calculator");
+        tools.add("text_replace");
+        tools.add("data_converter");
+        tools.add("json_formatter");
+        tools.add("csv_processor");
+    }
+
+    private String nextRequest() {
+        return BenchmarkData.REQUESTS[next++ % BenchmarkData.REQUESTS.length];
+    }
+
+    @Benchmark
+    public String[] extractKeywords() {
+        return HtmlGenerator.extractKeywords(nextRequest());
+    }
+
+    @Benchmark
+    public String generateFilename() {
+        return FilenameGenerator.generateFilename(nextRequest());
+    }
+
+    @Benchmark
+    public String shortcutRoute() {
+        return shortcutRouter.route(nextRequest().trim().toLowerCase(), tools::contains);
+    }
+}
@@ -0,0 +1,192 @@
+package aitool.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 语义缓存离线评估
+ * 用一组已生成的工具需求及其同义改写、以及不应命中任何已有工具的需求，
+ * 比较原有的“关键词 + 文件名包含”匹配与语义缓存在不同阈值下的召回率和精确率：
+ * 召回率 = 命中正确文件的改写需求数 / 改写需求总数；精确率 = 命中正确文件数 / 全部命中数
+ * 另外逐对评估“只保存了其中一个、查询另一个”的不同工具需求（如只有“计算器”时查询“BMI计算器”），
+ * 全部已有工具同时在索引中时这类查询会先命中更相近的工具，单独评估才能看出是否会误命中
+ *
+ * 与JMH基准一样放在 src/bench/java，不打进应用jar
+ * 运行：mvn -Pbenchmarks test-compile exec:java -Dexec.mainClass=aitool.service.SemanticCacheBenchmark -Dexec.classpathScope=test
+ */
+public class SemanticCacheBenchmark {
+
+    private static final double[] THRESHOLDS = {0.6, 0.65, 0.7, 0.75, 0.8, 0.85, 0.9};
+
+    /**
+     * 已生成的工具需求 -> 应命中该工具的改写需求
+     */
+    private static final Map<String, String[]> PARAPHRASES = new LinkedHashMap<String, String[]>() {{
+        put("生成一个计算器工具", new String[]{"做个计算器", "我需要一个计算器", "帮我做一个简单的计算器", "计算器"});
+        put("JSON格式化工具", new String[]{"帮我格式化JSON", "做一个json格式化页面", "json 格式化"});
+        put("CSV转JSON转换器", new String[]{"csv转json", "我需要一个CSV转JSON的工具", "把CSV转成JSON的转换器"});
+        put("文本批量替换工具", new String[]{"批量替换文本", "做个文本批量替换", "文本替换工具"});
+        put("房贷计算器", new String[]{"帮我做一个房贷计算器", "房贷计算", "生成房贷计算器页面"});
+        put("BMI计算器", new String[]{"bmi计算", "我想要一个BMI计算器", "做个bmi计算器"});
+        put("倒计时器", new String[]{"做一个倒计时器", "倒计时", "我需要倒计时器"});
+        put("二维码生成器", new String[]{"二维码生成", "帮我生成一个二维码生成器", "做个二维码生成工具"});
+        put("随机密码生成器", new String[]{"密码生成器", "随机密码生成", "我要一个随机密码生成工具"});
+        put("Markdown编辑器", new String[]{"markdown编辑器", "做一个markdown编辑器页面", "在线markdown编辑"});
+        put("单位换算工具", new String[]{"单位换算", "我需要一个单位换算器", "做个单位换算"});
+        put("正则表达式测试工具", new String[]{"正则表达式测试", "正则测试工具", "帮我做个正则表达式测试页面"});
+        put("时间戳转换工具", new String[]{"时间戳转换", "unix时间戳转换", "做个时间戳转换器"});
+        put("Base64编解码工具", new String[]{"base64编解码", "base64编码解码工具", "我需要一个Base64编解码页面"});
+        put("番茄钟计时器", new String[]{"番茄钟", "做个番茄钟", "番茄工作法计时器"});
+    }};
+
+    /**
+     * 不应命中任何已有工具的需求（与已有工具共享部分词语）
+     */
+    private static final String[] UNRELATED = {
+        "个税计算器", "汇率换算工具", "JSON转CSV", "文本字数统计", "密码强度检测",
+        "图片压缩工具", "Markdown转PDF", "二维码扫描识别", "贪吃蛇游戏", "待办事项清单",
+        "天气查询页面", "身份证号码校验", "日历工具", "时间计算器", "颜色选择器"
+    };
+
+    /**
+     * {已保存的需求, 查询的需求}：共享部分词语但不是同一工具，不应命中
+     */
+    private static final String[][] UNRELATED_PAIRS = {
+        {"生成一个计算器工具", "BMI计算器"}, {"生成一个计算器工具", "房贷计算器"}, {"生成一个计算器工具", "个税计算器"},
+        {"生成一个计算器工具", "时间计算器"}, {"BMI计算器", "生成一个计算器工具"}, {"BMI计算器", "房贷计算器"},
+        {"房贷计算器", "个税计算器"}, {"倒计时器", "计时器"}, {"倒计时器", "番茄钟计时器"}, {"番茄钟计时器", "倒计时器"},
+        {"CSV转JSON转换器", "JSON转CSV"}, {"JSON格式化工具", "JSON转CSV"}, {"二维码生成器", "二维码扫描识别"},
+        {"二维码生成器", "条形码生成器"}, {"随机密码生成器", "随机数生成器"}, {"随机密码生成器", "密码强度检测"},
+        {"单位换算工具", "汇率换算工具"}, {"时间戳转换工具", "时间计算器"}, {"Base64编解码工具", "URL编解码工具"},
+        {"Markdown编辑器", "Markdown转PDF"}
+    };
+
+    public static void main(String[] args) throws IOException {
+        File dir = Files.createTempDirectory("semantic-bench").toFile();
+        try {
+            run(dir);
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    private static void run(File dir) throws IOException {
+        // 为每个已生成的工具建立文件，文件名规则与生成结果存储一致
+        OutputFileIndex fileIndex = new OutputFileIndex(dir);
+        SemanticCache semantic = new SemanticCache(0);
+        Map<String, String> expectedFile = new LinkedHashMap<>();
+        for (String request : PARAPHRASES.keySet()) {
+            byte[] content = ("<html>" + request + "</html>").getBytes(StandardCharsets.UTF_8);
+            String filename = FilenameGenerator.generateBaseName(request) + "_"
+                + GenerationStore.contentHash(content).substring(0, 12) + ".html";
+            Files.write(new File(dir, filename).toPath(), content);
+            expectedFile.put(request, filename);
+            semantic.add(request, filename);
+        }
+        fileIndex.rebuild();
+
+        List<String[]> queries = new ArrayList<>();
+        for (Map.Entry<String, String[]> e : PARAPHRASES.entrySet()) {
+            for (String query : e.getValue()) {
+                queries.add(new String[]{query, expectedFile.get(e.getKey())});
+            }
+        }
+        for (String query : UNRELATED) {
+            queries.add(new String[]{query, null});
+        }
+
+        System.out.println("改写需求: " + (queries.size() - UNRELATED.length) + " 条，无关需求: " + UNRELATED.length + " 条");
+        System.out.println(String.format("%-22s %8s %8s %8s %8s", "方法", "召回率", "精确率", "命中", "误命中"));
+
+        int[] keyword = new int[2];
+        for (String[] query : queries) {
+            File match = fileIndex.findBestMatch(HtmlGenerator.extractKeywords(query[0]));
+            count(keyword, match != null ? match.getName() : null, query[1]);
+        }
+        print("关键词匹配（原方案）", keyword, queries.size() - UNRELATED.length);
+
+        List<Object[]> nearest = new ArrayList<>();
+        long start = System.nanoTime();
+        for (String[] query : queries) {
+            SemanticCache.Match match = semantic.nearest(query[0]);
+            nearest.add(new Object[]{match, query[1]});
+        }
+        long avgMicros = (System.nanoTime() - start) / 1000 / queries.size();
+
+        for (double threshold : THRESHOLDS) {
+            int[] result = new int[2];
+            for (Object[] item : nearest) {
+                SemanticCache.Match match = (SemanticCache.Match) item[0];
+                boolean hit = match != null && match.getSimilarity() >= threshold;
+                count(result, hit ? match.getFilename() : null, (String) item[1]);
+            }
+            print("语义缓存 阈值" + threshold, result, queries.size() - UNRELATED.length);
+        }
+        System.out.println("语义查找平均耗时: " + avgMicros + " 微秒");
+
+        // 列出每条需求的最近邻及相似度，便于调整阈值
+        System.out.println("各需求的最近邻：");
+        for (int i = 0; i < queries.size(); i++) {
+            String[] query = queries.get(i);
+            SemanticCache.Match match = (SemanticCache.Match) nearest.get(i)[0];
+            String mark = match == null ? "-" : (match.getFilename().equals(query[1]) ? "✓" : "✗");
+            System.out.println(String.format("  %s %-20s -> %-20s %.3f", mark, query[0],
+                match != null ? match.getRequest() : "", match != null ? match.getSimilarity() : 0f));
+        }
+
+        // 逐对评估：索引中只有已保存的需求
+        float[] pairSimilarity = new float[UNRELATED_PAIRS.length];
+        for (int i = 0; i < UNRELATED_PAIRS.length; i++) {
+            SemanticCache single = new SemanticCache(0);
+            single.add(UNRELATED_PAIRS[i][0], "stored.html");
+            SemanticCache.Match match = single.nearest(UNRELATED_PAIRS[i][1]);
+            pairSimilarity[i] = match != null ? match.getSimilarity() : 0f;
+        }
+        System.out.println("只保存其中一个的无关需求对: " + UNRELATED_PAIRS.length + " 对");
+        for (double threshold : THRESHOLDS) {
+            int falseHits = 0;
+            for (float similarity : pairSimilarity) {
+                if (similarity >= threshold) {
+                    falseHits++;
+                }
+            }
+            System.out.println(String.format("  阈值%-6s 误命中 %d", threshold, falseHits));
+        }
+        for (int i = 0; i < UNRELATED_PAIRS.length; i++) {
+            System.out.println(String.format("  %-20s -> %-20s %.3f", UNRELATED_PAIRS[i][1], UNRELATED_PAIRS[i][0], pairSimilarity[i]));
+        }
+    }
+
+    /**
+     * result[0] 命中正确文件数，result[1] 误命中数
+     */
+    private static void count(int[] result, String matched, String expected) {
+        if (matched == null) {
+            return;
+        }
+        if (matched.equals(expected)) {
+            result[0]++;
+        } else {
+            result[1]++;
+        }
+    }
+
+    private static void print(String name, int[] result, int positives) {
+        int hits = result[0] + result[1];
+        double recall = positives == 0 ? 0 : (double) result[0] / positives;
+        double precision = hits == 0 ? 1 : (double) result[0] / hits;
+        System.out.println(String.format("%-22s %7.1f%% %7.1f%% %8d %8d", name, recall * 100, precision * 100, hits, result[1]));
+    }
+}
@@ -0,0 +1,45 @@
+package aitool.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模板占位符替换的基准
+ * loaded：按名称渲染已加载的模板（Templates.render），直接使用编译结果；
+ * adhoc：传入模板字符串（Templates.formatTemplate），每次临时编译
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+    private String adhoc;
+
+    @Setup
+    public void setUp() {
+        adhoc = Templates.getTemplate("custom_tool");
+    }
+
+    @Benchmark
+    public String formatLoaded() {
+        return Templates.render("calculator", "计算器", "生成一个计算器工具", "请输入表达式...");
+    }
+
+    @Benchmark
+    public String formatAdhoc() {
+        return Templates.formatTemplate(adhoc, "自定义工具", "帮我做一个房贷计算器", "请输入你的需求描述...");
+    }
+}
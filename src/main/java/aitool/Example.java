@@ -1,10 +1,6 @@
 package aitool;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
-import aitool.service.FilenameGenerator;
 import aitool.service.HtmlGenerator;
 
 /**
@@ -44,15 +40,8 @@ public class Example {
                 // 生成HTML
                 String htmlContent = generator.generateTool(request);
                 
-                // 生成文件名
-                String filename = FilenameGenerator.generateFilename(request);
-                File filepath = new File(outputDir, filename);
-                
-                // 保存文件（使用UTF-8编码避免乱码）
-                try (OutputStreamWriter writer = new OutputStreamWriter(
-                        new FileOutputStream(filepath, false), StandardCharsets.UTF_8)) {
-                    writer.write(htmlContent);
-                }
+                // 保存文件（相同内容只保存一份）
+                File filepath = generator.saveToOutput(outputDir, request, htmlContent);
                 
                 System.out.println("  ✓ 已保存到: " + filepath.getAbsolutePath());
                 
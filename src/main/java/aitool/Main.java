@@ -1,13 +1,9 @@
 package aitool;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 import aitool.config.ConfigSetup;
 import aitool.service.AIConnectionDiagnostic;
-import aitool.service.FilenameGenerator;
 import aitool.service.HtmlGenerator;
 
 /**
@@ -86,19 +82,8 @@ public class Main {
                 // 生成HTML工具
                 String htmlContent = generator.generateTool(userInput);
                 
-                // 生成文件名
-                String filename = FilenameGenerator.generateFilename(userInput);
-                File outputDir = new File("output");
-                if (!outputDir.exists()) {
-                    outputDir.mkdirs();
-                }
-                File filepath = new File(outputDir, filename);
-                
-                // 保存文件（使用UTF-8编码避免乱码）
-                try (OutputStreamWriter writer = new OutputStreamWriter(
-                        new FileOutputStream(filepath, false), StandardCharsets.UTF_8)) {
-                    writer.write(htmlContent);
-                }
+                // 保存文件（相同内容只保存一份）
+                File filepath = generator.saveToOutput(new File("output"), userInput, htmlContent);
                 
                 System.out.println("\n✓ 工具已生成！");
                 System.out.println("文件保存位置: " + filepath.getAbsolutePath());
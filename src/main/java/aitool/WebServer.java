@@ -2,30 +2,60 @@ package aitool;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import aitool.service.FilenameGenerator;
+import aitool.config.Config;
+import aitool.service.ConcurrencyLimitedExecutor;
+import aitool.service.FileQuery;
+import aitool.service.GenerationJobQueue;
 import aitool.service.HtmlGenerator;
+import aitool.service.HttpCaching;
+import aitool.service.LogContext;
+import aitool.service.Metrics;
+import aitool.service.OutputFileIndex;
+import aitool.service.PrecompressedFiles;
+import aitool.service.StaticResource;
 
 import java.io.*;
 import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Web服务器 - 提供前端界面和API接口
  */
 public class WebServer {
     
+    private static final Logger logger = LoggerFactory.getLogger(WebServer.class);
+    
     private static final int DEFAULT_PORT = 8080;
     private static final String OUTPUT_DIR = "output";
     private static final Gson gson = new Gson();
+    // 响应体达到该大小才压缩（内置HttpServer没有Spring的server.compression，需要自行处理）
+    private static final int COMPRESSION_MIN_BYTES = Config.getInt("COMPRESSION_MIN_BYTES", 1024);
+    // 首页启动时读取一次，之后直接发送内存中的字节
+    private static final StaticResource INDEX = StaticResource.load("/web/index.html");
     private static HtmlGenerator generator;
+    private static GenerationJobQueue jobQueue;
     private static File outputDir;
+    private static String executorMode;
+    private static ConcurrencyLimitedExecutor limitedExecutor;
     
     public static void main(String[] args) {
         int port = DEFAULT_PORT;
@@ -55,23 +85,38 @@ public class WebServer {
         }
         System.out.println("输出目录: " + outputDir.getAbsolutePath());
         
+        // 初始化异步生成任务队列
+        jobQueue = new GenerationJobQueue(generator, outputDir);
+        
         try {
             HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
             
-            // 设置线程池
-            server.setExecutor(Executors.newFixedThreadPool(10));
+            // 设置线程池（可通过WEB_EXECUTOR配置线程模型）
+            server.setExecutor(createExecutor());
             
             // 静态文件服务 - 前端页面
-            server.createContext("/", new StaticFileHandler());
+            createContext(server, "/", new StaticFileHandler());
             
             // API接口 - 生成工具
-            server.createContext("/api/generate", new GenerateHandler());
+            createContext(server, "/api/generate", new GenerateHandler());
+            
+            // API接口 - 流式生成工具（Server-Sent Events）
+            createContext(server, "/api/generate/stream", new GenerateStreamHandler());
+            
+            // API接口 - 异步生成任务（提交 / 查询）
+            createContext(server, "/api/jobs", new JobHandler());
             
             // API接口 - 下载文件
-            server.createContext("/api/download", new DownloadHandler());
+            createContext(server, "/api/download", new DownloadHandler());
             
             // API接口 - 获取生成的文件列表
-            server.createContext("/api/files", new FileListHandler());
+            createContext(server, "/api/files", new FileListHandler());
+            
+            // API接口 - 运行统计信息
+            createContext(server, "/api/stats", new StatsHandler());
+            
+            // 指标接口（Prometheus格式）
+            createContext(server, "/metrics", new MetricsHandler());
             
             server.start();
             
@@ -86,6 +131,89 @@ public class WebServer {
         }
     }
     
+    /**
+     * 注册处理器，并加上请求ID过滤器
+     */
+    private static void createContext(HttpServer server, String path, HttpHandler handler) {
+        server.createContext(path, handler).getFilters().add(new RequestIdFilter());
+    }
+    
+    /**
+     * 请求ID过滤器：为每个请求分配请求ID（优先使用请求头 X-Request-Id）写入日志上下文，并通过响应头返回
+     */
+    static class RequestIdFilter extends Filter {
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            String requestId = LogContext.begin(exchange.getRequestHeaders().getFirst(LogContext.HEADER));
+            exchange.getResponseHeaders().set(LogContext.HEADER, requestId);
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                LogContext.end();
+            }
+        }
+        
+        @Override
+        public String description() {
+            return "request id";
+        }
+    }
+    
+    /**
+     * 根据配置创建请求处理线程池
+     * fixed：固定大小的平台线程池（WEB_THREADS）
+     * virtual：每个请求一个虚拟线程（需要JDK 21+，低版本自动回退到cached）
+     * cached：弹性线程池
+     * virtual/cached模式下同时处理的请求数受WEB_MAX_CONCURRENCY限制，超出的请求排队等待
+     */
+    private static Executor createExecutor() {
+        String mode = Config.get("WEB_EXECUTOR", "fixed").trim().toLowerCase();
+        int maxConcurrency = Config.getInt("WEB_MAX_CONCURRENCY", 1000);
+        
+        if ("virtual".equals(mode)) {
+            ExecutorService virtualExecutor = newVirtualThreadExecutor();
+            if (virtualExecutor != null) {
+                executorMode = "virtual";
+                limitedExecutor = new ConcurrencyLimitedExecutor(virtualExecutor, maxConcurrency);
+                Metrics.bindQueue("web", limitedExecutor, ConcurrencyLimitedExecutor::getPendingCount);
+                System.out.println("线程模型: 虚拟线程（最大并发: " + maxConcurrency + "）");
+                return limitedExecutor;
+            }
+            System.out.println("⚠ 当前JDK不支持虚拟线程（需要JDK 21+），回退到 cached 模式");
+            mode = "cached";
+        }
+        
+        if ("cached".equals(mode)) {
+            executorMode = "cached";
+            limitedExecutor = new ConcurrencyLimitedExecutor(Executors.newCachedThreadPool(), maxConcurrency);
+            Metrics.bindQueue("web", limitedExecutor, ConcurrencyLimitedExecutor::getPendingCount);
+            System.out.println("线程模型: 弹性线程池（最大并发: " + maxConcurrency + "）");
+            return limitedExecutor;
+        }
+        
+        if (!"fixed".equals(mode)) {
+            System.out.println("⚠ 未知的WEB_EXECUTOR配置: " + mode + "，使用 fixed 模式");
+        }
+        int threads = Math.max(1, Config.getInt("WEB_THREADS", 10));
+        executorMode = "fixed";
+        System.out.println("线程模型: 固定线程池（线程数: " + threads + "）");
+        ThreadPoolExecutor fixedExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(threads);
+        Metrics.bindQueue("web", fixedExecutor, e -> e.getQueue().size());
+        return fixedExecutor;
+    }
+    
+    /**
+     * 通过反射创建虚拟线程执行器（编译目标为Java 11，运行在JDK 21+时可用）
+     * @return 虚拟线程执行器，不支持时返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+    
     /**
      * 静态文件处理器 - 提供前端页面
      */
@@ -96,44 +224,48 @@ public class WebServer {
             
             if (path.equals("/") || path.equals("/index.html")) {
                 // 返回前端页面
-                String html = getIndexHtml();
-                sendResponse(exchange, 200, "text/html; charset=utf-8", html);
+                sendIndex(exchange);
             } else {
                 // 404
                 sendResponse(exchange, 404, "text/plain", "Not Found");
             }
         }
         
-        private String getIndexHtml() {
-            return loadHtmlFromResource("/web/index.html");
-        }
-        
         /**
-         * 从资源文件加载HTML内容
+         * 发送内存中的首页（预先压缩并计算ETag），客户端缓存仍有效时返回304
          */
-        private String loadHtmlFromResource(String resourcePath) {
-            try (InputStream is = WebServer.class.getResourceAsStream(resourcePath)) {
-                if (is == null) {
-                    System.err.println("警告: 无法加载HTML文件: " + resourcePath);
-                    return "<!DOCTYPE html><html><head><title>错误</title></head><body><h1>无法加载页面</h1></body></html>";
-                }
-                
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                    StringBuilder content = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        content.append(line).append("\n");
-                    }
-                    return content.toString();
-                }
-            } catch (Exception e) {
-                System.err.println("加载HTML文件失败: " + resourcePath);
-                e.printStackTrace();
-                return "<!DOCTYPE html><html><head><title>错误</title></head><body><h1>加载页面失败: " + e.getMessage() + "</h1></body></html>";
+        private void sendIndex(HttpExchange exchange) throws IOException {
+            if (INDEX == null) {
+                sendResponse(exchange, 500, "text/html; charset=utf-8",
+                    "<!DOCTYPE html><html><head><title>错误</title></head><body><h1>无法加载页面</h1></body></html>");
+                return;
+            }
+            Headers requestHeaders = exchange.getRequestHeaders();
+            Headers responseHeaders = exchange.getResponseHeaders();
+            boolean gzip = PrecompressedFiles.accepts(requestHeaders.getFirst("Accept-Encoding"), PrecompressedFiles.GZIP);
+            String etag = HttpCaching.variantETag(INDEX.getETag(), gzip ? PrecompressedFiles.GZIP : null);
+            responseHeaders.set("Content-Type", "text/html; charset=utf-8");
+            responseHeaders.set("ETag", etag);
+            responseHeaders.set("Last-Modified", HttpCaching.formatDate(INDEX.getLastModified()));
+            responseHeaders.set("Cache-Control", HttpCaching.INDEX_CACHE_CONTROL);
+            responseHeaders.set("Vary", "Accept-Encoding");
+            
+            if (HttpCaching.isNotModified(requestHeaders.getFirst("If-None-Match"),
+                    requestHeaders.getFirst("If-Modified-Since"), etag, INDEX.getLastModified())) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            
+            byte[] body = gzip ? INDEX.getGzipBytes() : INDEX.getBytes();
+            if (gzip) {
+                responseHeaders.set("Content-Encoding", PrecompressedFiles.GZIP);
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
             }
         }
-        
     }
     
     /**
@@ -170,40 +302,9 @@ public class WebServer {
                     return;
                 }
                 
-                // 生成文件名（确保是.html格式）
-                String filename = FilenameGenerator.generateFilename(userRequest);
-                // 确保文件名以.html结尾
-                if (!filename.toLowerCase().endsWith(".html")) {
-                    if (filename.endsWith(".")) {
-                        filename = filename.substring(0, filename.length() - 1) + ".html";
-                    } else {
-                        filename = filename + ".html";
-                    }
-                }
-                
-                // 确保输出目录存在
-                if (!outputDir.exists()) {
-                    boolean created = outputDir.mkdirs();
-                    if (!created) {
-                        throw new IOException("无法创建输出目录: " + outputDir.getAbsolutePath());
-                    }
-                }
-                
-                File filepath = new File(outputDir, filename);
-                
-                // 保存文件（使用UTF-8编码避免乱码）
-                try (OutputStreamWriter writer = new OutputStreamWriter(
-                        new FileOutputStream(filepath, false), StandardCharsets.UTF_8)) {
-                    writer.write(htmlContent);
-                    writer.flush();
-                }
-                
-                // 验证文件是否真的被保存了
-                if (!filepath.exists() || filepath.length() == 0) {
-                    throw new IOException("文件保存失败: " + filepath.getAbsolutePath());
-                }
-                
-                System.out.println("文件已保存: " + filepath.getAbsolutePath() + " (大小: " + filepath.length() + " 字节)");
+                // 保存到输出目录
+                File filepath = generator.saveToOutput(outputDir, userRequest, htmlContent);
+                String filename = filepath.getName();
                 
                 // 返回成功响应
                 JsonObject response = new JsonObject();
@@ -216,7 +317,7 @@ public class WebServer {
                     gson.toJson(response));
                 
             } catch (Exception e) {
-                e.printStackTrace();
+                logger.error("生成失败", e);
                 JsonObject response = createErrorResponse("生成失败: " + e.getMessage());
                 sendResponse(exchange, 500, "application/json; charset=utf-8", 
                     gson.toJson(response));
@@ -224,6 +325,130 @@ public class WebServer {
         }
     }
     
+    /**
+     * 流式生成工具API处理器（Server-Sent Events）
+     * 事件：delta（生成中的内容片段）、done（生成完成并已保存）、error（生成失败）
+     */
+    static class GenerateStreamHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "application/json", 
+                    gson.toJson(createErrorResponse("Method not allowed")));
+                return;
+            }
+            
+            String userRequest;
+            try {
+                JsonObject json = gson.fromJson(readRequestBody(exchange), JsonObject.class);
+                userRequest = json.get("request").getAsString();
+            } catch (Exception e) {
+                userRequest = null;
+            }
+            if (userRequest == null || userRequest.trim().isEmpty()) {
+                sendResponse(exchange, 400, "application/json; charset=utf-8", 
+                    gson.toJson(createErrorResponse("请求不能为空")));
+                return;
+            }
+            
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            // 长度为0表示使用分块传输，边生成边发送
+            exchange.sendResponseHeaders(200, 0);
+            
+            try (OutputStream os = exchange.getResponseBody()) {
+                // 客户端断开后继续生成，保证结果仍会保存到输出目录
+                boolean[] clientGone = {false};
+                try {
+                    String htmlContent = generator.generateToolStream(userRequest, delta -> {
+                        if (!clientGone[0]) {
+                            JsonObject event = new JsonObject();
+                            event.addProperty("text", delta);
+                            clientGone[0] = !writeEvent(os, "delta", event);
+                        }
+                    });
+                    
+                    File filepath = generator.saveToOutput(outputDir, userRequest, htmlContent);
+                    
+                    JsonObject response = new JsonObject();
+                    response.addProperty("success", true);
+                    response.addProperty("filename", filepath.getName());
+                    response.addProperty("filepath", filepath.getAbsolutePath());
+                    writeEvent(os, "done", response);
+                } catch (Exception e) {
+                    logger.error("流式生成失败", e);
+                    writeEvent(os, "error", createErrorResponse("生成失败: " + e.getMessage()));
+                }
+            } catch (IOException e) {
+                // 客户端已断开，忽略关闭时的异常
+            }
+        }
+        
+        /**
+         * 写出一个SSE事件，客户端已断开时返回false
+         */
+        private boolean writeEvent(OutputStream os, String name, JsonObject data) {
+            try {
+                String event = "event: " + name + "\n" + "data: " + gson.toJson(data) + "\n\n";
+                os.write(event.getBytes(StandardCharsets.UTF_8));
+                os.flush();
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * 异步生成任务处理器
+     * POST /api/jobs 提交任务，GET /api/jobs/{jobId} 查询任务状态和结果
+     */
+    static class JobHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            
+            if ("POST".equals(method) && (path.equals("/api/jobs") || path.equals("/api/jobs/"))) {
+                String userRequest;
+                try {
+                    JsonObject json = gson.fromJson(readRequestBody(exchange), JsonObject.class);
+                    userRequest = json.get("request").getAsString();
+                } catch (Exception e) {
+                    userRequest = null;
+                }
+                if (userRequest == null || userRequest.trim().isEmpty()) {
+                    sendResponse(exchange, 400, "application/json; charset=utf-8", 
+                        gson.toJson(createErrorResponse("请求不能为空")));
+                    return;
+                }
+                
+                try {
+                    GenerationJobQueue.Job job = jobQueue.submit(userRequest);
+                    sendResponse(exchange, 202, "application/json; charset=utf-8", 
+                        gson.toJson(job.toJson()));
+                } catch (RejectedExecutionException e) {
+                    sendResponse(exchange, 503, "application/json; charset=utf-8", 
+                        gson.toJson(createErrorResponse(e.getMessage())));
+                }
+            } else if ("GET".equals(method) && path.startsWith("/api/jobs/")) {
+                String jobId = path.substring("/api/jobs/".length());
+                GenerationJobQueue.Job job = jobQueue.getJob(jobId);
+                if (job == null) {
+                    sendResponse(exchange, 404, "application/json; charset=utf-8", 
+                        gson.toJson(createErrorResponse("任务不存在或已过期: " + jobId)));
+                    return;
+                }
+                sendResponse(exchange, 200, "application/json; charset=utf-8", 
+                    gson.toJson(job.toJson()));
+            } else {
+                sendResponse(exchange, 405, "application/json", 
+                    gson.toJson(createErrorResponse("Method not allowed")));
+            }
+        }
+    }
+    
     /**
      * 文件下载处理器
      */
@@ -263,12 +488,27 @@ public class WebServer {
                 }
             }
             
-            File file = new File(OUTPUT_DIR, filename);
-            if (!file.exists() || !file.isFile()) {
+            // 只允许下载output目录中的文件
+            File file = OutputFileIndex.resolve(new File(OUTPUT_DIR), filename);
+            if (file == null) {
+                sendResponse(exchange, 400, "text/plain", "Invalid file parameter");
+                return;
+            }
+            if (!file.isFile()) {
                 sendResponse(exchange, 404, "text/plain", "File not found: " + filename);
                 return;
             }
             
+            // 客户端支持压缩时发送预压缩副本；断点续传（Range）请求始终使用原文件，保证各分段来自同一表示
+            Headers requestHeaders = exchange.getRequestHeaders();
+            String range = requestHeaders.getFirst("Range");
+            PrecompressedFiles.Variant variant = PrecompressedFiles.select(file,
+                range != null ? null : requestHeaders.getFirst("Accept-Encoding"));
+            if (variant.getEncoding() != null) {
+                exchange.getResponseHeaders().set("Content-Encoding", variant.getEncoding());
+            }
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+            
             // 对文件名进行RFC 5987编码（支持中文文件名）
             // RFC 5987要求：filename*=charset'lang'value，其中value是百分号编码
             StringBuilder encodedFilename = new StringBuilder();
@@ -302,39 +542,182 @@ public class WebServer {
                 "attachment; filename=\"" + asciiFilename + "\"; " +
                 "filename*=UTF-8''" + encodedFilename.toString());
             
-            // 发送文件内容
-            byte[] fileContent = Files.readAllBytes(file.toPath());
-            exchange.sendResponseHeaders(200, fileContent.length);
+            // 发送文件内容（ETag和Last-Modified以原文件为准，压缩副本的ETag附加编码名）
+            String etag = HttpCaching.variantETag(HttpCaching.fileETag(file), variant.getEncoding());
+            exchange.getResponseHeaders().set("Cache-Control", HttpCaching.DOWNLOAD_CACHE_CONTROL);
+            sendFile(exchange, variant.getFile(), etag, file.lastModified(),
+                variant.getEncoding() == null ? range : null);
+        }
+        
+        /**
+         * 从FileChannel直接传输文件内容到响应体，不把整个文件读入堆内存（每次下载的内存占用固定）
+         * 支持条件请求（If-None-Match / If-Modified-Since）和单个字节范围请求（Range / If-Range）
+         * @param range Range请求头，不使用范围请求时为null
+         */
+        private void sendFile(HttpExchange exchange, File file, String etag, long modified, String range) throws IOException {
+            Headers requestHeaders = exchange.getRequestHeaders();
+            Headers responseHeaders = exchange.getResponseHeaders();
+            long length = file.length();
+            // HTTP日期精确到秒
+            long lastModified = modified / 1000 * 1000;
+            responseHeaders.set("ETag", etag);
+            responseHeaders.set("Last-Modified", HttpCaching.formatDate(lastModified));
+            responseHeaders.set("Accept-Ranges", "bytes");
+            
+            if (HttpCaching.isNotModified(requestHeaders.getFirst("If-None-Match"),
+                    requestHeaders.getFirst("If-Modified-Since"), etag, lastModified)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
             
-            try (OutputStream os = exchange.getResponseBody()) {
-                os.write(fileContent);
+            long start = 0;
+            long end = length - 1;
+            int status = 200;
+            String ifRange = requestHeaders.getFirst("If-Range");
+            // If-Range中的ETag或日期与当前文件不一致时（文件已变化）忽略Range，返回完整文件
+            if (range != null && (ifRange == null || ifRange.equals(etag) || HttpCaching.parseDate(ifRange) == lastModified)) {
+                long[] bounds = parseRange(range, length);
+                if (bounds != null && bounds.length == 0) {
+                    responseHeaders.set("Content-Range", "bytes */" + length);
+                    exchange.sendResponseHeaders(416, -1);
+                    exchange.close();
+                    return;
+                }
+                if (bounds != null) {
+                    start = bounds[0];
+                    end = bounds[1];
+                    status = 206;
+                    responseHeaders.set("Content-Range", "bytes " + start + "-" + end + "/" + length);
+                }
+            }
+            
+            long count = end - start + 1;
+            exchange.sendResponseHeaders(status, count > 0 ? count : -1);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                 OutputStream os = exchange.getResponseBody()) {
+                WritableByteChannel target = Channels.newChannel(os);
+                long position = start;
+                long remaining = count;
+                while (remaining > 0) {
+                    long transferred = channel.transferTo(position, remaining, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                    remaining -= transferred;
+                }
+            }
+        }
+        
+        /**
+         * 解析单个字节范围（bytes=start-end / bytes=start- / bytes=-suffix）
+         * @return [start, end]；无法满足的范围返回空数组；格式无效或多个范围时返回null（按完整文件处理）
+         */
+        private long[] parseRange(String range, long length) {
+            String value = range.trim();
+            if (!value.startsWith("bytes=") || value.indexOf(',') >= 0) {
+                return null;
+            }
+            String spec = value.substring("bytes=".length()).trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                long start;
+                long end;
+                if (first.isEmpty()) {
+                    long suffix = Long.parseLong(last);
+                    if (suffix <= 0) {
+                        return new long[0];
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(first);
+                    end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                    if (end < start) {
+                        return null;
+                    }
+                    if (start >= length) {
+                        return new long[0];
+                    }
+                    end = Math.min(end, length - 1);
+                }
+                return new long[]{start, end};
+            } catch (NumberFormatException e) {
+                return null;
             }
         }
     }
     
     /**
-     * 文件列表处理器
+     * 文件列表处理器（分页，从内存中的文件索引读取）
      */
     static class FileListHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
-            File outputDir = new File(OUTPUT_DIR);
-            if (!outputDir.exists()) {
-                sendResponse(exchange, 200, "application/json; charset=utf-8", 
-                    gson.toJson(new java.util.ArrayList<>()));
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            FileQuery query;
+            try {
+                query = new FileQuery(params.get("sort"), params.get("order"), params.get("prefix"),
+                    params.get("keyword"), params.get("cursor"), params.get("limit"));
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "application/json; charset=utf-8",
+                    gson.toJson(createErrorResponse(e.getMessage())));
                 return;
             }
-            
-            File[] files = outputDir.listFiles((dir, name) -> name.endsWith(".html"));
-            java.util.List<String> fileList = new java.util.ArrayList<>();
-            if (files != null) {
-                for (File file : files) {
-                    fileList.add(file.getName());
-                }
+            sendResponse(exchange, 200, "application/json; charset=utf-8", 
+                gson.toJson(generator.listFiles(query)));
+        }
+    }
+    
+    /**
+     * 运行统计信息处理器
+     */
+    static class StatsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            Map<String, Object> stats = generator.getStats();
+            stats.put("jobQueue", jobQueue.getStats());
+            Map<String, Object> executorStats = new LinkedHashMap<>();
+            executorStats.put("mode", executorMode);
+            if (limitedExecutor != null) {
+                executorStats.putAll(limitedExecutor.getStats());
             }
-            
+            stats.put("webExecutor", executorStats);
             sendResponse(exchange, 200, "application/json; charset=utf-8", 
-                gson.toJson(fileList));
+                gson.toJson(stats));
+        }
+    }
+    
+    /**
+     * 解析查询字符串（URL解码，同名参数取第一个）
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = java.net.URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+            String value = eq >= 0 ? java.net.URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            params.putIfAbsent(name, value);
+        }
+        return params;
+    }
+    
+    /**
+     * 指标处理器（Prometheus文本格式）
+     */
+    static class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            sendResponse(exchange, 200, Metrics.CONTENT_TYPE, Metrics.scrape());
         }
     }
     
@@ -355,12 +738,21 @@ public class WebServer {
     
     /**
      * 发送响应
+     * 文本类响应（HTML、JSON等）达到COMPRESSION_MIN_BYTES且客户端支持gzip时压缩发送
      */
     private static void sendResponse(HttpExchange exchange, int statusCode, 
                                      String contentType, String response) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", contentType);
         exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
         byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
+        if (isCompressible(contentType)) {
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+            if (responseBytes.length >= COMPRESSION_MIN_BYTES
+                    && PrecompressedFiles.accepts(exchange.getRequestHeaders().getFirst("Accept-Encoding"), PrecompressedFiles.GZIP)) {
+                responseBytes = PrecompressedFiles.gzip(responseBytes);
+                exchange.getResponseHeaders().set("Content-Encoding", PrecompressedFiles.GZIP);
+            }
+        }
         exchange.sendResponseHeaders(statusCode, responseBytes.length);
         
         try (OutputStream os = exchange.getResponseBody()) {
@@ -368,6 +760,10 @@ public class WebServer {
         }
     }
     
+    private static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.startsWith("application/json");
+    }
+    
     /**
      * 创建错误响应
      */
@@ -24,16 +24,25 @@ public class Config {
         put("DOUBAO_API_KEY", "");
         put("DOUBAO_ENDPOINT_ID", "");
         put("DOUBAO_BASE_URL", "https://ark.cn-beijing.volces.com/api/v3");
+        put("DOUBAO_WEIGHT", "1");  // 负载均衡权重（AI_LB_POLICY=weighted时生效，0表示只作为备用）
+        put("DOUBAO_RPM", "0");     // 每分钟请求数上限（客户端限流，0表示不限制）
+        put("DOUBAO_TPM", "0");     // 每分钟Token数上限（客户端限流，0表示不限制）
         
         // 豆包配置（备用接入点1）
         put("DOUBAO_API_KEY_2", "");
         put("DOUBAO_ENDPOINT_ID_2", "");
         put("DOUBAO_BASE_URL_2", "");
+        put("DOUBAO_WEIGHT_2", "1");
+        put("DOUBAO_RPM_2", "0");
+        put("DOUBAO_TPM_2", "0");
         
         // 豆包配置（备用接入点2）
         put("DOUBAO_API_KEY_3", "");
         put("DOUBAO_ENDPOINT_ID_3", "");
         put("DOUBAO_BASE_URL_3", "");
+        put("DOUBAO_WEIGHT_3", "1");
+        put("DOUBAO_RPM_3", "0");
+        put("DOUBAO_TPM_3", "0");
         
         // 火山引擎官方配置（兼容旧配置）
         put("VOLC_ACCESSKEY", "");
@@ -45,6 +54,62 @@ public class Config {
         put("AI_CONNECT_TIMEOUT", "30");  // 连接超时（秒）
         put("AI_READ_TIMEOUT", "120");     // 读取超时（秒），默认120秒，适合生成大量内容
         put("AI_WRITE_TIMEOUT", "60");     // 写入超时（秒）
+        
+        // 共享HTTP连接池配置（所有AI客户端共用）
+        put("AI_HTTP_MAX_IDLE_CONNECTIONS", "20");    // 最大空闲连接数
+        put("AI_HTTP_KEEP_ALIVE_SECONDS", "300");     // 空闲连接保留时间（秒）
+        put("AI_HTTP_MAX_REQUESTS", "64");            // 最大并发请求数
+        put("AI_HTTP_MAX_REQUESTS_PER_HOST", "32");   // 单个主机的最大并发请求数
+        
+        // AI客户端负载均衡策略：priority / round_robin / weighted / least_outstanding / latency
+        put("AI_LB_POLICY", "priority");
+        
+        // AI客户端限流配置（各接入点的上限见DOUBAO_RPM/DOUBAO_TPM）
+        put("AI_RATE_LIMIT_MAX_WAIT_MS", "30000");  // 排队等待令牌的最长时间（毫秒），超时切换到下一个接入点
+        put("AI_RATE_LIMIT_BACKOFF_MS", "5000");    // 服务端限流且未给出Retry-After时的暂停时间（毫秒）
+        put("AI_EXPECTED_OUTPUT_TOKENS", "4000");   // 预估每次生成的输出Token数（用于TPM限流）
+        
+        // AI客户端熔断配置
+        put("AI_BREAKER_FAILURE_THRESHOLD", "2");        // 连接超时、服务不可用等连续失败多少次后熔断
+        put("AI_BREAKER_COOLDOWN_SECONDS", "30");        // 熔断冷却时间（秒），试探失败后翻倍
+        put("AI_BREAKER_MAX_COOLDOWN_SECONDS", "300");   // 冷却时间上限（秒）
+        put("AI_BREAKER_AUTH_COOLDOWN_SECONDS", "300");  // 认证失败、欠费时的冷却时间（秒）
+        put("AI_BREAKER_PROBE_INTERVAL_SECONDS", "10");  // 后台探测熔断客户端的间隔（秒）
+        
+        // AI对冲请求配置（多个接入点时，主接入点迟迟不输出则同时请求下一个；仅流式调用）
+        put("AI_HEDGE_ENABLED", "false");
+        put("AI_HEDGE_PERCENTILE", "95");               // 对冲延迟取历史延迟的分位数
+        put("AI_HEDGE_MIN_SAMPLES", "20");              // 样本数达到后才使用分位数，否则使用默认延迟
+        put("AI_HEDGE_FIRST_TOKEN_DELAY_MS", "5000");   // 等待首个片段的默认对冲延迟（毫秒）
+        put("AI_HEDGE_MAX_THREADS", "32");              // 对冲线程数上限，用满时退回普通容灾
+        
+        // 异步生成任务队列配置
+        put("GENERATION_WORKERS", "4");                  // 工作线程数
+        put("GENERATION_QUEUE_CAPACITY", "100");         // 排队上限，队列满时拒绝新任务
+        put("GENERATION_JOB_RETENTION_SECONDS", "600");  // 已完成任务的保留时间（秒）
+        put("STREAM_MAX_CONCURRENCY", "32");             // 同时进行的流式生成（/api/generate/stream）上限
+        
+        // 内置Web服务器（WebServer）线程模型配置
+        put("WEB_EXECUTOR", "fixed");          // fixed：固定线程池；virtual：虚拟线程（JDK 21+）；cached：弹性线程池+并发限制
+        put("WEB_THREADS", "10");              // fixed模式的线程数
+        put("WEB_MAX_CONCURRENCY", "1000");    // virtual/cached模式下同时处理的最大请求数
+        put("COMPRESSION_MIN_BYTES", "1024");  // 文本响应达到该大小且客户端支持时gzip压缩（Spring版见application.properties）
+        put("INDEX_CACHE_CONTROL", "no-cache");                 // 首页的Cache-Control（每次向服务器校验ETag，未变化时返回304）
+        put("DOWNLOAD_CACHE_CONTROL", "public, max-age=3600");  // 生成文件下载的Cache-Control
+        put("FILE_ETAG_CACHE_ENTRIES", "10000");                // 缓存的文件ETag条目数上限（按最近使用淘汰）
+        
+        // 缓存配置
+        put("HTML_CACHE_MAX_BYTES", "67108864");  // HTML内容缓存上限（字节），默认64MB
+        put("SEMANTIC_CACHE_ENABLED", "true");    // 按需求语义相似度复用已生成的文件（关闭时使用文件名关键词匹配）
+        put("SEMANTIC_CACHE_THRESHOLD", "0.8");   // 语义缓存命中所需的最低相似度（0~1）
+        
+        // 外部模板目录（为空时只使用内置模板）：目录中的 名称.html 自动注册为模板，修改后无需重启
+        put("TEMPLATE_DIR", "");
+        put("TEMPLATE_RELOAD_DEBOUNCE_MS", "500");  // 模板文件变化后等待多久再重新加载（毫秒），合并连续的保存事件
+        put("SHORTCUTS_FILE", "");                  // 快捷模板路由规则文件（为空时使用内置的 web/shortcuts.json）
+        
+        // 日志配置（日志级别由环境变量或系统属性 LOG_LEVEL 控制，见logback.xml）
+        put("PROMPT_LOG_SAMPLE_RATE", "0.01");  // DEBUG级别下输出完整提示词的请求比例（0~1）
     }};
     
     /**
@@ -158,6 +223,45 @@ public class Config {
                lowerValue.equals("yes") || lowerValue.equals("on");
     }
     
+    /**
+     * 获取整数配置值，未配置或格式无效时返回默认值
+     */
+    public static int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+    
+    /**
+     * 获取长整数配置值，未配置或格式无效时返回默认值
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("⚠ " + key + " 配置无效（" + value + "），使用默认值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * 获取小数配置值，未配置或格式无效时返回默认值
+     */
+    public static double getDouble(String key, double defaultValue) {
+        String value = get(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("⚠ " + key + " 配置无效（" + value + "），使用默认值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+    
     /**
      * 保存配置到文件
      */
@@ -0,0 +1,31 @@
+package aitool.config;
+
+import aitool.service.LogContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 请求ID过滤器
+ * 为每个请求分配请求ID（优先使用请求头 X-Request-Id）写入日志上下文，并通过响应头返回
+ */
+@Component
+public class RequestIdFilter extends OncePerRequestFilter {
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String requestId = LogContext.begin(request.getHeader(LogContext.HEADER));
+        response.setHeader(LogContext.HEADER, requestId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            LogContext.end();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package aitool.config;
 
+import aitool.service.GenerationJobQueue;
 import aitool.service.HtmlGenerator;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -38,6 +39,11 @@ public class WebConfig {
         return HtmlGenerator.getInstance();
     }
     
+    @Bean(destroyMethod = "shutdown")
+    public GenerationJobQueue generationJobQueue(HtmlGenerator htmlGenerator) {
+        return new GenerationJobQueue(htmlGenerator, outputDir);
+    }
+    
     public File getOutputDir() {
         return outputDir;
     }
@@ -1,45 +1,55 @@
 package aitool.controller;
 
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
+import aitool.service.HttpCaching;
+import aitool.service.PrecompressedFiles;
+import aitool.service.StaticResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 /**
  * 首页控制器 - 提供前端页面
+ * 页面启动时读取一次并缓存字节、gzip压缩字节和ETag；响应带ETag和Last-Modified，
+ * 浏览器或CDN重新校验时由Spring MVC比较If-None-Match / If-Modified-Since并返回304
  */
 @RestController
 public class IndexController {
     
     private static final Logger logger = LoggerFactory.getLogger(IndexController.class);
+    private static final MediaType TEXT_HTML_UTF8 = MediaType.parseMediaType("text/html; charset=utf-8");
+    
+    private final StaticResource index = StaticResource.load("/web/index.html");
     
     @GetMapping(value = {"/", "/index.html"}, produces = MediaType.TEXT_HTML_VALUE)
-    public ResponseEntity<String> index() {
-        try {
-            Resource resource = new ClassPathResource("web/index.html");
-            String html = StreamUtils.copyToString(
-                resource.getInputStream(), 
-                StandardCharsets.UTF_8
-            );
-            return ResponseEntity.ok()
-                .contentType(MediaType.TEXT_HTML)
-                .body(html);
-        } catch (IOException e) {
-            logger.error("加载HTML文件失败: /web/index.html", e);
+    public ResponseEntity<byte[]> index(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (index == null) {
+            logger.error("加载HTML文件失败: /web/index.html");
             String errorHtml = "<!DOCTYPE html><html><head><title>错误</title></head>" +
-                "<body><h1>加载页面失败: " + e.getMessage() + "</h1></body></html>";
+                "<body><h1>加载页面失败</h1></body></html>";
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .contentType(MediaType.TEXT_HTML)
-                .body(errorHtml);
+                .contentType(TEXT_HTML_UTF8)
+                .body(errorHtml.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        // 客户端支持时直接发送预先压缩的字节（已设置Content-Encoding的响应不会被server.compression再次压缩）
+        boolean gzip = PrecompressedFiles.accepts(acceptEncoding, PrecompressedFiles.GZIP);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+            .contentType(TEXT_HTML_UTF8)
+            .eTag(HttpCaching.variantETag(index.getETag(), gzip ? PrecompressedFiles.GZIP : null))
+            .lastModified(index.getLastModified())
+            .header(HttpHeaders.CACHE_CONTROL, HttpCaching.INDEX_CACHE_CONTROL)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, PrecompressedFiles.GZIP);
         }
+        return builder.body(gzip ? index.getGzipBytes() : index.getBytes());
     }
 }
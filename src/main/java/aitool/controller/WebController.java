@@ -1,8 +1,15 @@
 package aitool.controller;
 
+import aitool.config.Config;
 import aitool.config.WebConfig;
-import aitool.service.FilenameGenerator;
+import aitool.service.FileQuery;
+import aitool.service.GenerationJobQueue;
 import aitool.service.HtmlGenerator;
+import aitool.service.HttpCaching;
+import aitool.service.LogContext;
+import aitool.service.Metrics;
+import aitool.service.OutputFileIndex;
+import aitool.service.PrecompressedFiles;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,13 +20,17 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.File;
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +43,17 @@ public class WebController {
     
     private static final Logger logger = LoggerFactory.getLogger(WebController.class);
     private static final Gson gson = new Gson();
+    private static final long STREAM_TIMEOUT_MS = 10 * 60 * 1000L;
+    // 每个流式生成占用一个线程直到生成结束，线程数达到上限时拒绝新的流式请求
+    private static final ExecutorService STREAM_EXECUTOR = new ThreadPoolExecutor(
+        0, Math.max(1, Config.getInt("STREAM_MAX_CONCURRENCY", 32)), 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(),
+        r -> {
+            Thread thread = new Thread(r, "generate-stream");
+            thread.setDaemon(true);
+            return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
     
     @Autowired
     private HtmlGenerator htmlGenerator;
@@ -39,6 +61,9 @@ public class WebController {
     @Autowired
     private WebConfig webConfig;
     
+    @Autowired
+    private GenerationJobQueue jobQueue;
+    
     /**
      * 生成工具API接口
      */
@@ -63,37 +88,9 @@ public class WebController {
                     .body(gson.toJson(createErrorResponse("生成的HTML内容为空")));
             }
             
-            // 生成文件名（确保是.html格式）
-            String filename = FilenameGenerator.generateFilename(userRequest);
-            // 确保文件名以.html结尾
-            if (!filename.toLowerCase().endsWith(".html")) {
-                if (filename.endsWith(".")) {
-                    filename = filename.substring(0, filename.length() - 1) + ".html";
-                } else {
-                    filename = filename + ".html";
-                }
-            }
-            
-            // 确保输出目录存在
-            File outputDir = webConfig.getOutputDir();
-            if (!outputDir.exists()) {
-                boolean created = outputDir.mkdirs();
-                if (!created) {
-                    throw new IOException("无法创建输出目录: " + outputDir.getAbsolutePath());
-                }
-            }
-            
-            File filepath = new File(outputDir, filename);
-            
-            // 保存文件（使用UTF-8编码避免乱码）
-            Files.write(filepath.toPath(), htmlContent.getBytes(StandardCharsets.UTF_8));
-            
-            // 验证文件是否真的被保存了
-            if (!filepath.exists() || filepath.length() == 0) {
-                throw new IOException("文件保存失败: " + filepath.getAbsolutePath());
-            }
-            
-            System.out.println("文件已保存: " + filepath.getAbsolutePath() + " (大小: " + filepath.length() + " 字节)");
+            // 保存到输出目录
+            File filepath = htmlGenerator.saveToOutput(webConfig.getOutputDir(), userRequest, htmlContent);
+            String filename = filepath.getName();
             
             // 返回成功响应
             JsonObject response = new JsonObject();
@@ -115,11 +112,118 @@ public class WebController {
         }
     }
     
+    /**
+     * 流式生成工具API接口（Server-Sent Events）
+     * 事件：delta（生成中的内容片段）、done（生成完成并已保存）、error（生成失败）
+     */
+    @PostMapping(value = "/api/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter generateStream(@RequestBody JsonObject request) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        String userRequest = request.has("request") ? request.get("request").getAsString() : null;
+        
+        if (userRequest == null || userRequest.trim().isEmpty()) {
+            sendEvent(emitter, "error", createErrorResponse("请求不能为空"));
+            emitter.complete();
+            return emitter;
+        }
+        
+        try {
+            STREAM_EXECUTOR.execute(LogContext.wrap(() -> {
+                // 客户端断开后继续生成，保证结果仍会保存到输出目录
+                AtomicBoolean clientGone = new AtomicBoolean(false);
+                try {
+                    String htmlContent = htmlGenerator.generateToolStream(userRequest, delta -> {
+                        if (!clientGone.get()) {
+                            JsonObject event = new JsonObject();
+                            event.addProperty("text", delta);
+                            if (!sendEvent(emitter, "delta", event)) {
+                                clientGone.set(true);
+                            }
+                        }
+                    });
+                    
+                    File filepath = htmlGenerator.saveToOutput(webConfig.getOutputDir(), userRequest, htmlContent);
+                    
+                    JsonObject response = new JsonObject();
+                    response.addProperty("success", true);
+                    response.addProperty("filename", filepath.getName());
+                    response.addProperty("filepath", filepath.getAbsolutePath());
+                    sendEvent(emitter, "done", response);
+                } catch (Exception e) {
+                    logger.error("流式生成工具失败", e);
+                    sendEvent(emitter, "error", createErrorResponse("生成失败: " + e.getMessage()));
+                } finally {
+                    emitter.complete();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            logger.warn("流式生成请求已拒绝 reason=concurrency_limit");
+            sendEvent(emitter, "error", createErrorResponse("流式生成请求过多，请稍后再试"));
+            emitter.complete();
+        }
+        
+        return emitter;
+    }
+    
+    /**
+     * 提交异步生成任务，立即返回任务ID
+     */
+    @PostMapping("/api/jobs")
+    public ResponseEntity<String> submitJob(@RequestBody JsonObject request) {
+        String userRequest = request.has("request") ? request.get("request").getAsString() : null;
+        if (userRequest == null || userRequest.trim().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(gson.toJson(createErrorResponse("请求不能为空")));
+        }
+        
+        try {
+            GenerationJobQueue.Job job = jobQueue.submit(userRequest);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(gson.toJson(job.toJson()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(gson.toJson(createErrorResponse(e.getMessage())));
+        }
+    }
+    
+    /**
+     * 查询异步生成任务的状态和结果
+     */
+    @GetMapping("/api/jobs/{jobId}")
+    public ResponseEntity<String> getJob(@PathVariable String jobId) {
+        GenerationJobQueue.Job job = jobQueue.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(gson.toJson(createErrorResponse("任务不存在或已过期: " + jobId)));
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(gson.toJson(job.toJson()));
+    }
+    
+    /**
+     * 发送SSE事件，客户端已断开时返回false
+     */
+    private boolean sendEvent(SseEmitter emitter, String name, JsonObject data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(gson.toJson(data)));
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
     /**
      * 文件下载接口
      */
     @GetMapping("/api/download")
-    public ResponseEntity<Resource> download(@RequestParam String file) {
+    public ResponseEntity<Resource> download(@RequestParam String file,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                             @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) {
         try {
             // URL解码文件名
             String filename = java.net.URLDecoder.decode(file, StandardCharsets.UTF_8);
@@ -133,14 +237,19 @@ public class WebController {
                 }
             }
             
-            File outputDir = webConfig.getOutputDir();
-            File fileToDownload = new File(outputDir, filename);
-            
-            if (!fileToDownload.exists() || !fileToDownload.isFile()) {
+            // 只允许下载output目录中的文件
+            File fileToDownload = OutputFileIndex.resolve(webConfig.getOutputDir(), filename);
+            if (fileToDownload == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (!fileToDownload.isFile()) {
                 return ResponseEntity.notFound().build();
             }
             
-            Resource resource = new FileSystemResource(fileToDownload);
+            // 客户端支持压缩时发送预压缩副本（已设置Content-Encoding的响应不会被server.compression再次压缩）；
+            // 文件以流的方式发送，Range请求和条件请求（If-None-Match / If-Modified-Since）由Spring MVC处理，Range请求始终使用原文件
+            PrecompressedFiles.Variant variant = PrecompressedFiles.select(fileToDownload, range != null ? null : acceptEncoding);
+            Resource resource = new FileSystemResource(variant.getFile());
             
             // 对文件名进行RFC 5987编码（支持中文文件名）
             StringBuilder encodedFilename = new StringBuilder();
@@ -164,7 +273,16 @@ public class WebController {
             String asciiFilename = filename.replaceAll("[^\\x20-\\x7E]", "_");
             asciiFilename = asciiFilename.replace("\\", "\\\\").replace("\"", "\\\"");
             
-            return ResponseEntity.ok()
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CACHE_CONTROL, HttpCaching.DOWNLOAD_CACHE_CONTROL)
+                .eTag(HttpCaching.variantETag(HttpCaching.fileETag(fileToDownload), variant.getEncoding()))
+                .lastModified(fileToDownload.lastModified());
+            if (variant.getEncoding() != null) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, variant.getEncoding());
+            }
+            return builder
                 .contentType(MediaType.parseMediaType("text/html; charset=utf-8"))
                 .header(HttpHeaders.CONTENT_DISPOSITION, 
                     "attachment; filename=\"" + asciiFilename + "\"; " +
@@ -178,33 +296,57 @@ public class WebController {
     }
     
     /**
-     * 获取生成的文件列表
+     * 获取生成的文件列表（分页，从内存中的文件索引读取）
+     * 参数：sort=time|size|name，order=desc|asc，prefix，keyword，cursor（上一页的nextCursor），limit
      */
     @GetMapping("/api/files")
-    public ResponseEntity<List<String>> getFiles() {
+    public ResponseEntity<String> getFiles(@RequestParam(required = false) String sort,
+                                           @RequestParam(required = false) String order,
+                                           @RequestParam(required = false) String prefix,
+                                           @RequestParam(required = false) String keyword,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) String limit) {
         try {
-            File outputDir = webConfig.getOutputDir();
-            if (!outputDir.exists()) {
-                return ResponseEntity.ok(new ArrayList<>());
-            }
-            
-            File[] files = outputDir.listFiles((dir, name) -> name.endsWith(".html"));
-            List<String> fileList = new ArrayList<>();
-            if (files != null) {
-                for (File file : files) {
-                    fileList.add(file.getName());
-                }
-            }
-            
+            FileQuery query = new FileQuery(sort, order, prefix, keyword, cursor, limit);
             return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(fileList);
+                .body(gson.toJson(htmlGenerator.listFiles(query)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(gson.toJson(createErrorResponse(e.getMessage())));
         } catch (Exception e) {
             logger.error("获取文件列表失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
     
+    /**
+     * 获取运行统计信息
+     */
+    @GetMapping("/api/stats")
+    public ResponseEntity<String> getStats() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(gson.toJson(collectStats()));
+    }
+    
+    /**
+     * 指标接口（Prometheus文本格式）
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<String> metrics() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(Metrics.CONTENT_TYPE))
+            .body(Metrics.scrape());
+    }
+    
+    private Map<String, Object> collectStats() {
+        Map<String, Object> stats = htmlGenerator.getStats();
+        stats.put("jobQueue", jobQueue.getStats());
+        return stats;
+    }
+    
     /**
      * 创建错误响应
      */
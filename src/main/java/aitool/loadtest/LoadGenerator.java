@@ -0,0 +1,422 @@
+package aitool.loadtest;
+
+import aitool.service.LatencyTracker;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 端到端压测工具：按目标RPS向Web服务发送 /api/generate、/api/download、/api/files 请求，统计吞吐量和延迟分位数
+ * 请求按固定间隔发出（开环），延迟从计划发送时间开始计算，服务变慢时排队时间也计入延迟，不会因等待响应而少发请求；
+ * 进行中的请求达到 --max-in-flight 时新请求记为丢弃
+ * 配合 MockArkServer 使用即可在本地衡量容灾切换、并发模型和缓存改动的效果，不产生真实的模型调用费用
+ *
+ * 运行：java -cp target/classes:... aitool.loadtest.LoadGenerator --target=http://localhost:8080 --rps=20 --duration=60
+ * 参数：
+ * <ul>
+ *   <li>--target：Web服务地址（默认 http://localhost:8080）</li>
+ *   <li>--rps：目标每秒请求数（默认10）</li>
+ *   <li>--duration：压测时长（秒，默认60）</li>
+ *   <li>--mix：各接口的请求比例（默认 generate:1,download:5,files:4）</li>
+ *   <li>--unique：生成请求中使用全新需求（必然调用AI）的比例，其余从常见需求中选取（默认0.2）</li>
+ *   <li>--max-in-flight：同时进行的最大请求数（默认1000）</li>
+ *   <li>--timeout：单个请求的超时时间（秒，默认300）</li>
+ *   <li>--json：把结果以JSON写入指定文件</li>
+ * </ul>
+ */
+public class LoadGenerator {
+
+    private static final String GENERATE = "generate";
+    private static final String DOWNLOAD = "download";
+    private static final String FILES = "files";
+
+    private static final String[] REQUESTS = {
+        "生成一个计算器工具", "JSON格式化工具", "CSV转JSON转换器", "文本批量替换工具", "房贷计算器",
+        "BMI计算器", "倒计时器", "二维码生成器", "随机密码生成器", "Markdown编辑器",
+        "单位换算工具", "正则表达式测试工具", "时间戳转换工具", "Base64编解码工具", "番茄钟计时器",
+        "Create a simple unit converter", "Build a todo list app with local storage"
+    };
+    private static final String[] SORTS = {"time", "size", "name"};
+
+    private static final Gson gson = new Gson();
+
+    private final Settings settings;
+    private final HttpClient client;
+    private final ExecutorService callbacks = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "load-callback");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final List<String> filenames = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong uniqueCounter = new AtomicLong();
+
+    public LoadGenerator(Settings settings) {
+        this.settings = settings;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(callbacks)
+            .build();
+        int capacity = (int) Math.min(1_000_000, Math.max(1000, (long) (settings.rps * settings.durationSeconds * 2)));
+        for (String endpoint : settings.mix.keySet()) {
+            stats.put(endpoint, new EndpointStats(capacity));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.parse(args);
+        LoadGenerator generator = new LoadGenerator(settings);
+        Map<String, Object> result = generator.run();
+        generator.printReport(result);
+        if (settings.jsonFile != null) {
+            Path path = Paths.get(settings.jsonFile);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.write(path, new GsonBuilder().setPrettyPrinting().create().toJson(result).getBytes(StandardCharsets.UTF_8));
+            System.out.println("结果已写入: " + path.toAbsolutePath());
+        }
+    }
+
+    /**
+     * 执行压测，返回统计结果
+     */
+    public Map<String, Object> run() throws InterruptedException {
+        loadFilenames();
+        System.out.println("压测开始: " + settings.target + "，目标 " + settings.rps + " 请求/秒，持续 "
+            + settings.durationSeconds + " 秒，接口比例 " + settings.mix);
+
+        long total = (long) (settings.rps * settings.durationSeconds);
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / settings.rps);
+        long start = System.nanoTime();
+        long nextProgress = start + TimeUnit.SECONDS.toNanos(10);
+        for (long i = 0; i < total; i++) {
+            long due = start + i * periodNanos;
+            sleepUntil(due);
+            send(pickEndpoint(), due);
+            if (System.nanoTime() >= nextProgress) {
+                printProgress(start);
+                nextProgress += TimeUnit.SECONDS.toNanos(10);
+            }
+        }
+        long sendDuration = System.nanoTime() - start;
+
+        // 等待进行中的请求完成
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.timeoutSeconds);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(100);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("target", settings.target);
+        result.put("targetRps", settings.rps);
+        result.put("durationSeconds", settings.durationSeconds);
+        result.put("sendSeconds", sendDuration / 1e9);
+        result.put("elapsedSeconds", elapsed / 1e9);
+        result.put("unfinished", inFlight.get());
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            endpoints.put(entry.getKey(), entry.getValue().toMap(sendDuration / 1e9));
+        }
+        result.put("endpoints", endpoints);
+        return result;
+    }
+
+    /**
+     * 读取已有的文件列表，作为下载请求的目标
+     */
+    private void loadFilenames() {
+        try {
+            HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(settings.target + "/api/files?limit=500"))
+                    .timeout(Duration.ofSeconds(30)).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            JsonObject json = gson.fromJson(response.body(), JsonObject.class);
+            for (JsonElement file : json.getAsJsonArray("files")) {
+                filenames.add(file.getAsJsonObject().get("filename").getAsString());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("⚠ 读取文件列表失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (filenames.isEmpty() && settings.mix.containsKey(DOWNLOAD)) {
+            System.out.println("⚠ 输出目录中还没有文件，生成请求成功前的下载请求将被跳过");
+        }
+    }
+
+    private String pickEndpoint() {
+        int draw = ThreadLocalRandom.current().nextInt(settings.mixTotal);
+        for (Map.Entry<String, Integer> entry : settings.mix.entrySet()) {
+            draw -= entry.getValue();
+            if (draw < 0) {
+                return entry.getKey();
+            }
+        }
+        return settings.mix.keySet().iterator().next();
+    }
+
+    private void send(String endpoint, long dueNanos) {
+        EndpointStats endpointStats = stats.get(endpoint);
+        HttpRequest request = buildRequest(endpoint);
+        if (request == null) {
+            endpointStats.skipped.incrementAndGet();
+            return;
+        }
+        if (inFlight.get() >= settings.maxInFlight) {
+            endpointStats.dropped.incrementAndGet();
+            return;
+        }
+        inFlight.incrementAndGet();
+        endpointStats.sent.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+            .whenComplete((response, error) -> {
+                inFlight.decrementAndGet();
+                long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dueNanos);
+                if (error != null) {
+                    endpointStats.failed.incrementAndGet();
+                    endpointStats.countError(error.getClass().getSimpleName());
+                    return;
+                }
+                endpointStats.latency.record(latencyMillis);
+                if (response.statusCode() >= 200 && response.statusCode() < 400) {
+                    endpointStats.succeeded.incrementAndGet();
+                    if (GENERATE.equals(endpoint)) {
+                        rememberFilename(response.body());
+                    }
+                } else {
+                    endpointStats.failed.incrementAndGet();
+                    endpointStats.countError("HTTP " + response.statusCode());
+                }
+            });
+    }
+
+    private HttpRequest buildRequest(String endpoint) {
+        HttpRequest.Builder builder;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (endpoint) {
+            case GENERATE: {
+                String userRequest = REQUESTS[random.nextInt(REQUESTS.length)];
+                if (random.nextDouble() < settings.unique) {
+                    userRequest = userRequest + " 压测" + uniqueCounter.incrementAndGet() + "-" + random.nextInt(1_000_000);
+                }
+                JsonObject body = new JsonObject();
+                body.addProperty("request", userRequest);
+                builder = HttpRequest.newBuilder(URI.create(settings.target + "/api/generate"))
+                    .header("Content-Type", "application/json; charset=utf-8")
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(body), StandardCharsets.UTF_8));
+                break;
+            }
+            case DOWNLOAD: {
+                if (filenames.isEmpty()) {
+                    return null;
+                }
+                String filename = filenames.get(random.nextInt(filenames.size()));
+                builder = HttpRequest.newBuilder(URI.create(settings.target + "/api/download?file="
+                    + URLEncoder.encode(filename, StandardCharsets.UTF_8).replace("+", "%20")))
+                    .header("Accept-Encoding", "gzip")
+                    .GET();
+                break;
+            }
+            case FILES:
+                builder = HttpRequest.newBuilder(URI.create(settings.target + "/api/files?limit=50&sort="
+                    + SORTS[random.nextInt(SORTS.length)]))
+                    .header("Accept-Encoding", "gzip")
+                    .GET();
+                break;
+            default:
+                throw new IllegalArgumentException("未知接口: " + endpoint);
+        }
+        return builder.timeout(Duration.ofSeconds(settings.timeoutSeconds)).build();
+    }
+
+    private void rememberFilename(String body) {
+        try {
+            JsonObject json = gson.fromJson(body, JsonObject.class);
+            if (json != null && json.has("filename")) {
+                String filename = json.get("filename").getAsString();
+                if (!filenames.contains(filename)) {
+                    filenames.add(filename);
+                }
+            }
+        } catch (RuntimeException e) {
+            // 响应不是JSON时忽略
+        }
+    }
+
+    private void printProgress(long start) {
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+        StringBuilder line = new StringBuilder("[" + seconds + "s] 进行中: " + inFlight.get());
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats s = entry.getValue();
+            line.append("，").append(entry.getKey()).append(" 成功/失败: ")
+                .append(s.succeeded.get()).append("/").append(s.failed.get());
+        }
+        System.out.println(line);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void printReport(Map<String, Object> result) {
+        System.out.println("=".repeat(100));
+        System.out.println(String.format("%-10s %8s %8s %8s %8s %8s %10s %8s %8s %8s %8s",
+            "endpoint", "sent", "ok", "failed", "dropped", "skipped", "ok/s", "p50", "p90", "p99", "max"));
+        Map<String, Object> endpoints = (Map<String, Object>) result.get("endpoints");
+        for (Map.Entry<String, Object> entry : endpoints.entrySet()) {
+            Map<String, Object> s = (Map<String, Object>) entry.getValue();
+            Map<String, Object> latency = (Map<String, Object>) s.get("latencyMillis");
+            System.out.println(String.format("%-10s %8d %8d %8d %8d %8d %10.2f %8d %8d %8d %8d",
+                entry.getKey(), s.get("sent"), s.get("succeeded"), s.get("failed"), s.get("dropped"), s.get("skipped"),
+                s.get("throughput"), latency.get("p50"), latency.get("p90"), latency.get("p99"), latency.get("max")));
+            Map<String, Long> errors = (Map<String, Long>) s.get("errors");
+            if (!errors.isEmpty()) {
+                System.out.println("           errors: " + errors);
+            }
+        }
+        System.out.println("延迟单位: 毫秒（从计划发送时间起算）；未完成的请求: " + result.get("unfinished"));
+        System.out.println("=".repeat(100));
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * 单个接口的统计
+     */
+    private static class EndpointStats {
+        final LatencyTracker latency;
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong succeeded = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+        EndpointStats(int capacity) {
+            this.latency = new LatencyTracker(capacity);
+        }
+
+        void countError(String kind) {
+            errors.computeIfAbsent(kind, k -> new AtomicLong()).incrementAndGet();
+        }
+
+        Map<String, Object> toMap(double seconds) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("sent", sent.get());
+            map.put("succeeded", succeeded.get());
+            map.put("failed", failed.get());
+            map.put("dropped", dropped.get());
+            map.put("skipped", skipped.get());
+            map.put("throughput", seconds > 0 ? succeeded.get() / seconds : 0.0);
+            Map<String, Object> percentiles = new LinkedHashMap<>();
+            percentiles.put("p50", latency.percentile(50));
+            percentiles.put("p90", latency.percentile(90));
+            percentiles.put("p99", latency.percentile(99));
+            percentiles.put("max", latency.percentile(100));
+            map.put("latencyMillis", percentiles);
+            Map<String, Long> errorCounts = new LinkedHashMap<>();
+            for (Map.Entry<String, AtomicLong> entry : errors.entrySet()) {
+                errorCounts.put(entry.getKey(), entry.getValue().get());
+            }
+            map.put("errors", errorCounts);
+            return map;
+        }
+    }
+
+    /**
+     * 启动参数
+     */
+    public static class Settings {
+        String target = "http://localhost:8080";
+        double rps = 10;
+        long durationSeconds = 60;
+        Map<String, Integer> mix = parseMix("generate:1,download:5,files:4");
+        int mixTotal = 10;
+        double unique = 0.2;
+        int maxInFlight = 1000;
+        long timeoutSeconds = 300;
+        String jsonFile;
+
+        /**
+         * 解析 --名称=值 形式的参数
+         */
+        public static Settings parse(String[] args) {
+            Settings settings = new Settings();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("参数格式应为 --名称=值: " + arg);
+                }
+                String name = arg.substring(2, eq);
+                String value = arg.substring(eq + 1);
+                switch (name) {
+                    case "target": settings.target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value; break;
+                    case "rps": settings.rps = Double.parseDouble(value); break;
+                    case "duration": settings.durationSeconds = Long.parseLong(value); break;
+                    case "mix": settings.mix = parseMix(value); break;
+                    case "unique": settings.unique = Double.parseDouble(value); break;
+                    case "max-in-flight": settings.maxInFlight = Integer.parseInt(value); break;
+                    case "timeout": settings.timeoutSeconds = Long.parseLong(value); break;
+                    case "json": settings.jsonFile = value; break;
+                    default:
+                        throw new IllegalArgumentException("未知参数: --" + name);
+                }
+            }
+            if (settings.rps <= 0 || settings.durationSeconds <= 0) {
+                throw new IllegalArgumentException("rps和duration必须大于0");
+            }
+            settings.mixTotal = settings.mix.values().stream().mapToInt(Integer::intValue).sum();
+            return settings;
+        }
+
+        private static Map<String, Integer> parseMix(String value) {
+            Map<String, Integer> mix = new LinkedHashMap<>();
+            for (String part : value.split(",")) {
+                String[] pair = part.trim().split(":");
+                String endpoint = pair[0].trim().toLowerCase();
+                if (!GENERATE.equals(endpoint) && !DOWNLOAD.equals(endpoint) && !FILES.equals(endpoint)) {
+                    throw new IllegalArgumentException("mix只支持generate、download、files: " + endpoint);
+                }
+                int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+                if (weight > 0) {
+                    mix.put(endpoint, weight);
+                }
+            }
+            if (mix.isEmpty()) {
+                throw new IllegalArgumentException("mix至少包含一个接口");
+            }
+            return mix;
+        }
+    }
+}
@@ -0,0 +1,553 @@
+package aitool.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 本地模拟的方舟（Ark）Responses API，用于压测和容灾演练，不产生真实的模型调用费用
+ * 把 DOUBAO_BASE_URL 指向 http://localhost:端口/api/v3 即可（API密钥任意填写），支持阻塞和流式（SSE）调用
+ * 可配置生成耗时分布、首个片段延迟，以及按比例注入401/429/500/503错误、超时和流式输出中断；
+ * 启动多个实例分别作为 DOUBAO_BASE_URL / DOUBAO_BASE_URL_2 / DOUBAO_BASE_URL_3，即可演练容灾切换和对冲请求
+ *
+ * 运行：java -cp target/classes:... aitool.loadtest.MockArkServer --port=18080 --latency=lognormal:8000:0.5 --error-429=0.05
+ * 参数：
+ * <ul>
+ *   <li>--port：监听端口（默认18080）</li>
+ *   <li>--latency：完整生成耗时分布（默认 lognormal:8000:0.5），格式见 {@link Latency#parse}</li>
+ *   <li>--first-token：流式调用首个片段的延迟分布（默认 uniform:200-800），不超过完整生成耗时</li>
+ *   <li>--html-bytes：生成的HTML大小（默认20000）</li>
+ *   <li>--chunk-chars：流式调用每个片段的字符数（默认40）</li>
+ *   <li>--fenced：用markdown代码块包裹HTML并附带说明文字的比例（默认0）</li>
+ *   <li>--error-401 / --error-429 / --error-500 / --error-503：返回对应错误的比例（默认0）</li>
+ *   <li>--retry-after：429错误的重试等待秒数（默认2）</li>
+ *   <li>--timeout：不响应的比例（默认0），不响应的请求挂起 --timeout-ms（默认600000）后断开</li>
+ *   <li>--stream-abort：流式输出到一半时返回error事件的比例（默认0）</li>
+ * </ul>
+ * GET /stats 返回各结果的请求数和当前进行中的请求数
+ */
+public class MockArkServer {
+
+    private static final Gson gson = new Gson();
+
+    private final Settings settings;
+    private final Map<String, AtomicLong> outcomes = new LinkedHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public MockArkServer(Settings settings) {
+        this.settings = settings;
+        for (String outcome : new String[]{"success", "stream_success", "401", "429", "500", "503", "timeout", "stream_abort"}) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Settings settings = Settings.parse(args);
+        HttpServer server = new MockArkServer(settings).start();
+        System.out.println("✓ 模拟方舟服务已启动: http://localhost:" + server.getAddress().getPort() + "/api/v3");
+        System.out.println("  生成耗时: " + settings.latency + "，首个片段延迟: " + settings.firstToken);
+        System.out.println("  错误注入: 401=" + settings.error401 + " 429=" + settings.error429 + " 500=" + settings.error500
+            + " 503=" + settings.error503 + " 超时=" + settings.timeout + " 流式中断=" + settings.streamAbort);
+    }
+
+    /**
+     * 启动服务（请求处理线程不设上限，模拟服务本身不应成为瓶颈）
+     */
+    public HttpServer start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(settings.port), 1024);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+        return server;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        try {
+            if ("POST".equals(exchange.getRequestMethod()) && path.endsWith("/responses")) {
+                inFlight.incrementAndGet();
+                try {
+                    handleResponses(exchange);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            } else if ("GET".equals(exchange.getRequestMethod()) && path.equals("/stats")) {
+                sendJson(exchange, 200, gson.toJson(getStats()));
+            } else {
+                sendError(exchange, 404, "NotFound", "The requested resource was not found: " + path);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleResponses(HttpExchange exchange) throws IOException {
+        JsonObject request;
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            request = gson.fromJson(reader, JsonObject.class);
+        } catch (RuntimeException e) {
+            request = null;
+        }
+        if (request == null) {
+            sendError(exchange, 400, "InvalidParameter", "The request body is not valid JSON");
+            return;
+        }
+        String model = request.has("model") ? request.get("model").getAsString() : "mock-model";
+        boolean stream = request.has("stream") && request.get("stream").getAsBoolean();
+        String userText = lastUserText(request);
+
+        // 按比例抽取本次请求的结果
+        double draw = ThreadLocalRandom.current().nextDouble();
+        if ((draw -= settings.error401) < 0) {
+            count("401");
+            sendError(exchange, 401, "AuthenticationError",
+                "The API key or AK/SK in the request is missing or invalid (401)");
+            return;
+        }
+        if ((draw -= settings.error429) < 0) {
+            count("429");
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(settings.retryAfterSeconds));
+            sendError(exchange, 429, "RateLimitExceeded.EndpointRPMExceeded",
+                "The request has exceeded the rate limit (429), please retry after " + settings.retryAfterSeconds + "s");
+            return;
+        }
+        if ((draw -= settings.error500) < 0) {
+            count("500");
+            sleep(settings.latency.sampleMillis() / 10);
+            sendError(exchange, 500, "InternalServiceError", "The service encountered an unexpected internal error (500)");
+            return;
+        }
+        if ((draw -= settings.error503) < 0) {
+            count("503");
+            sendError(exchange, 503, "ServiceUnavailable", "The service is overloaded, service unavailable (503)");
+            return;
+        }
+        if ((draw -= settings.timeout) < 0) {
+            count("timeout");
+            sleep(settings.timeoutMillis);
+            return;
+        }
+
+        String text = content(userText);
+        long totalMillis = settings.latency.sampleMillis();
+        if (stream) {
+            boolean abort = ThreadLocalRandom.current().nextDouble() < settings.streamAbort;
+            stream(exchange, model, userText, text, totalMillis, abort);
+        } else {
+            sleep(totalMillis);
+            count("success");
+            String responseId = "resp_" + randomHex();
+            String messageId = "msg_" + randomHex();
+            sendJson(exchange, 200, gson.toJson(response(responseId, model, "completed",
+                message(messageId, "completed", text), userText, text)));
+        }
+    }
+
+    /**
+     * 按Responses API的流式事件格式输出，片段按时间均匀发送，总耗时约为totalMillis
+     */
+    private void stream(HttpExchange exchange, String model, String userText, String text,
+                        long totalMillis, boolean abort) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        String responseId = "resp_" + randomHex();
+        String messageId = "msg_" + randomHex();
+        int chunks = Math.max(1, (text.length() + settings.chunkChars - 1) / settings.chunkChars);
+        long firstTokenMillis = Math.min(totalMillis, settings.firstToken.sampleMillis());
+        long start = System.nanoTime();
+        int[] sequence = {0};
+
+        OutputStream os = exchange.getResponseBody();
+        try {
+            JsonObject created = event("response.created", sequence);
+            created.add("response", response(responseId, model, "in_progress", null, userText, null));
+            writeEvent(os, created);
+            JsonObject itemAdded = event("response.output_item.added", sequence);
+            itemAdded.addProperty("output_index", 0);
+            itemAdded.add("item", message(messageId, "in_progress", null));
+            writeEvent(os, itemAdded);
+            JsonObject partAdded = contentEvent("response.content_part.added", sequence, messageId);
+            partAdded.add("part", outputText(""));
+            writeEvent(os, partAdded);
+
+            for (int i = 0; i < chunks; i++) {
+                if (abort && i == chunks / 2) {
+                    count("stream_abort");
+                    JsonObject error = event("error", sequence);
+                    error.addProperty("code", "InternalServiceError");
+                    error.addProperty("message", "The service encountered an unexpected internal error (500)");
+                    writeEvent(os, error);
+                    return;
+                }
+                // 第一个片段在首个片段延迟后发送，其余片段均匀分布到总耗时内
+                long due = firstTokenMillis + (chunks == 1 ? 0 : (totalMillis - firstTokenMillis) * i / (chunks - 1));
+                sleepUntil(start + TimeUnit.MILLISECONDS.toNanos(due));
+                JsonObject delta = contentEvent("response.output_text.delta", sequence, messageId);
+                delta.addProperty("delta", text.substring(i * settings.chunkChars,
+                    Math.min(text.length(), (i + 1) * settings.chunkChars)));
+                writeEvent(os, delta);
+            }
+
+            JsonObject textDone = contentEvent("response.output_text.done", sequence, messageId);
+            textDone.addProperty("text", text);
+            writeEvent(os, textDone);
+            JsonObject partDone = contentEvent("response.content_part.done", sequence, messageId);
+            partDone.add("part", outputText(text));
+            writeEvent(os, partDone);
+            JsonObject itemDone = event("response.output_item.done", sequence);
+            itemDone.addProperty("output_index", 0);
+            JsonObject message = message(messageId, "completed", text);
+            itemDone.add("item", message);
+            writeEvent(os, itemDone);
+            JsonObject completed = event("response.completed", sequence);
+            completed.add("response", response(responseId, model, "completed", message, userText, text));
+            writeEvent(os, completed);
+            count("stream_success");
+        } catch (IOException e) {
+            // 调用方已断开（如对冲请求中落败的一方被取消）
+        }
+    }
+
+    private static JsonObject event(String type, int[] sequence) {
+        JsonObject event = new JsonObject();
+        event.addProperty("type", type);
+        event.addProperty("sequence_number", sequence[0]++);
+        return event;
+    }
+
+    private static JsonObject contentEvent(String type, int[] sequence, String messageId) {
+        JsonObject event = event(type, sequence);
+        event.addProperty("item_id", messageId);
+        event.addProperty("output_index", 0);
+        event.addProperty("content_index", 0);
+        return event;
+    }
+
+    private static void writeEvent(OutputStream os, JsonObject event) throws IOException {
+        String data = "event: " + event.get("type").getAsString() + "\ndata: " + gson.toJson(event) + "\n\n";
+        os.write(data.getBytes(StandardCharsets.UTF_8));
+        os.flush();
+    }
+
+    private static JsonObject response(String id, String model, String status, JsonObject message,
+                                       String userText, String text) {
+        JsonObject response = new JsonObject();
+        response.addProperty("id", id);
+        response.addProperty("object", "response");
+        response.addProperty("created_at", System.currentTimeMillis() / 1000);
+        response.addProperty("model", model);
+        response.addProperty("status", status);
+        JsonArray output = new JsonArray();
+        if (message != null) {
+            output.add(message);
+        }
+        response.add("output", output);
+        if (text != null) {
+            // 与RateLimiter.estimateTokens相同的粗略估算
+            long inputTokens = (userText.length() + 1) / 2;
+            long outputTokens = (text.length() + 1) / 2;
+            JsonObject usage = new JsonObject();
+            usage.addProperty("input_tokens", inputTokens);
+            usage.addProperty("output_tokens", outputTokens);
+            usage.addProperty("total_tokens", inputTokens + outputTokens);
+            response.add("usage", usage);
+        }
+        return response;
+    }
+
+    private static JsonObject message(String id, String status, String text) {
+        JsonObject message = new JsonObject();
+        message.addProperty("type", "message");
+        message.addProperty("id", id);
+        message.addProperty("role", "assistant");
+        message.addProperty("status", status);
+        JsonArray content = new JsonArray();
+        if (text != null) {
+            content.add(outputText(text));
+        }
+        message.add("content", content);
+        return message;
+    }
+
+    private static JsonObject outputText(String text) {
+        JsonObject part = new JsonObject();
+        part.addProperty("type", "output_text");
+        part.addProperty("text", text);
+        part.add("annotations", new JsonArray());
+        return part;
+    }
+
+    /**
+     * 请求中最后一条用户消息的文本
+     */
+    private static String lastUserText(JsonObject request) {
+        String text = "";
+        JsonElement input = request.get("input");
+        if (input != null && input.isJsonPrimitive()) {
+            return input.getAsString();
+        }
+        if (input == null || !input.isJsonArray()) {
+            return text;
+        }
+        for (JsonElement item : input.getAsJsonArray()) {
+            if (!item.isJsonObject() || !item.getAsJsonObject().has("role")
+                    || !"user".equals(item.getAsJsonObject().get("role").getAsString())) {
+                continue;
+            }
+            JsonElement content = item.getAsJsonObject().get("content");
+            if (content != null && content.isJsonPrimitive()) {
+                text = content.getAsString();
+            } else if (content != null && content.isJsonArray()) {
+                for (JsonElement part : content.getAsJsonArray()) {
+                    if (part.isJsonObject() && part.getAsJsonObject().has("text")) {
+                        text = part.getAsJsonObject().get("text").getAsString();
+                    }
+                }
+            }
+        }
+        return text;
+    }
+
+    /**
+     * 生成约html-bytes大小的HTML页面，按--fenced比例包裹markdown代码块和说明文字
+     */
+    private String content(String userText) {
+        String title = escape(userText.isEmpty() ? "模拟工具" : userText);
+        StringBuilder html = new StringBuilder(settings.htmlBytes + 512);
+        html.append("<!DOCTYPE html>\n<html lang=\"zh-CN\">\n<head>\n<meta charset=\"UTF-8\">\n<title>")
+            .append(title).append("</title>\n<style>\nbody { font-family: sans-serif; margin: 24px; }\n</style>\n")
+            .append("</head>\n<body>\n<h1>").append(title).append("</h1>\n<script>\n");
+        int line = 0;
+        while (html.length() < settings.htmlBytes) {
+            html.append("// 模拟生成内容 第").append(line++).append("行\n");
+        }
+        html.append("</script>\n</body>\n</html>");
+        if (ThreadLocalRandom.current().nextDouble() < settings.fenced) {
+            return "好的，下面是生成的工具页面：\n\n```html\n" + html + "\n```\n\n保存为 .html 文件后用浏览器打开即可。";
+        }
+        return html.toString();
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        JsonObject error = new JsonObject();
+        error.addProperty("code", code);
+        error.addProperty("message", message);
+        error.addProperty("param", "");
+        error.addProperty("type", code.split("\\.")[0]);
+        JsonObject body = new JsonObject();
+        body.add("error", error);
+        sendJson(exchange, status, gson.toJson(body));
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private void count(String outcome) {
+        outcomes.get(outcome).incrementAndGet();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : outcomes.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().get());
+        }
+        stats.put("inFlight", inFlight.get());
+        return stats;
+    }
+
+    private static String randomHex() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    private static void sleep(long millis) {
+        sleepUntil(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 延迟分布（毫秒）
+     */
+    public abstract static class Latency {
+
+        private final String spec;
+
+        private Latency(String spec) {
+            this.spec = spec;
+        }
+
+        /**
+         * 抽取一个延迟（毫秒，不小于0）
+         */
+        public abstract long sampleMillis();
+
+        /**
+         * 解析延迟分布：
+         * fixed:毫秒、uniform:最小-最大、normal:均值:标准差、lognormal:中位数:sigma、exp:均值
+         */
+        public static Latency parse(String spec) {
+            String[] parts = spec.trim().split(":");
+            try {
+                switch (parts[0].toLowerCase()) {
+                    case "fixed": {
+                        long millis = Long.parseLong(parts[1]);
+                        return new Latency(spec) {
+                            @Override
+                            public long sampleMillis() {
+                                return millis;
+                            }
+                        };
+                    }
+                    case "uniform": {
+                        String[] range = parts[1].split("-");
+                        long min = Long.parseLong(range[0]);
+                        long max = Long.parseLong(range[1]);
+                        return new Latency(spec) {
+                            @Override
+                            public long sampleMillis() {
+                                return min + (long) (ThreadLocalRandom.current().nextDouble() * (max - min));
+                            }
+                        };
+                    }
+                    case "normal": {
+                        double mean = Double.parseDouble(parts[1]);
+                        double stddev = Double.parseDouble(parts[2]);
+                        return new Latency(spec) {
+                            @Override
+                            public long sampleMillis() {
+                                return Math.max(0, Math.round(mean + stddev * ThreadLocalRandom.current().nextGaussian()));
+                            }
+                        };
+                    }
+                    case "lognormal": {
+                        double median = Double.parseDouble(parts[1]);
+                        double sigma = Double.parseDouble(parts[2]);
+                        return new Latency(spec) {
+                            @Override
+                            public long sampleMillis() {
+                                return Math.round(median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+                            }
+                        };
+                    }
+                    case "exp": {
+                        double mean = Double.parseDouble(parts[1]);
+                        return new Latency(spec) {
+                            @Override
+                            public long sampleMillis() {
+                                return Math.round(-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+                            }
+                        };
+                    }
+                    default:
+                        break;
+                }
+            } catch (RuntimeException e) {
+                // 按格式错误处理
+            }
+            throw new IllegalArgumentException("无效的延迟分布: " + spec
+                + "（支持 fixed:毫秒、uniform:最小-最大、normal:均值:标准差、lognormal:中位数:sigma、exp:均值）");
+        }
+
+        @Override
+        public String toString() {
+            return spec;
+        }
+    }
+
+    /**
+     * 启动参数
+     */
+    public static class Settings {
+        int port = 18080;
+        Latency latency = Latency.parse("lognormal:8000:0.5");
+        Latency firstToken = Latency.parse("uniform:200-800");
+        int htmlBytes = 20000;
+        int chunkChars = 40;
+        double fenced;
+        double error401;
+        double error429;
+        double error500;
+        double error503;
+        int retryAfterSeconds = 2;
+        double timeout;
+        long timeoutMillis = 600000;
+        double streamAbort;
+
+        /**
+         * 解析 --名称=值 形式的参数
+         */
+        public static Settings parse(String[] args) {
+            Settings settings = new Settings();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("参数格式应为 --名称=值: " + arg);
+                }
+                String name = arg.substring(2, eq);
+                String value = arg.substring(eq + 1);
+                switch (name) {
+                    case "port": settings.port = Integer.parseInt(value); break;
+                    case "latency": settings.latency = Latency.parse(value); break;
+                    case "first-token": settings.firstToken = Latency.parse(value); break;
+                    case "html-bytes": settings.htmlBytes = Integer.parseInt(value); break;
+                    case "chunk-chars": settings.chunkChars = Math.max(1, Integer.parseInt(value)); break;
+                    case "fenced": settings.fenced = Double.parseDouble(value); break;
+                    case "error-401": settings.error401 = Double.parseDouble(value); break;
+                    case "error-429": settings.error429 = Double.parseDouble(value); break;
+                    case "error-500": settings.error500 = Double.parseDouble(value); break;
+                    case "error-503": settings.error503 = Double.parseDouble(value); break;
+                    case "retry-after": settings.retryAfterSeconds = Integer.parseInt(value); break;
+                    case "timeout": settings.timeout = Double.parseDouble(value); break;
+                    case "timeout-ms": settings.timeoutMillis = Long.parseLong(value); break;
+                    case "stream-abort": settings.streamAbort = Double.parseDouble(value); break;
+                    default:
+                        throw new IllegalArgumentException("未知参数: --" + name);
+                }
+            }
+            return settings;
+        }
+    }
+}
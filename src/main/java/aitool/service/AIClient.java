@@ -5,19 +5,62 @@ import com.volcengine.ark.runtime.model.responses.request.*;
 import com.volcengine.ark.runtime.model.responses.response.ResponseObject;
 import com.volcengine.ark.runtime.model.responses.constant.ResponsesConstants;
 import com.volcengine.ark.runtime.model.responses.content.*;
+import com.volcengine.ark.runtime.model.responses.event.outputtext.OutputTextDeltaEvent;
 import com.volcengine.ark.runtime.service.ArkService;
 import aitool.config.Config;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * AI客户端基类
  */
 public abstract class AIClient {
     
+    /**
+     * 默认系统提示词（也参与生成结果存储键的计算，修改后旧的生成记录不再命中）
+     */
+    static final String DEFAULT_SYSTEM_PROMPT =
+        "你是一个专业的HTML工具生成专家。根据用户的需求，生成一个完整、可用的HTML工具页面。\n\n" +
+        "要求：\n" +
+        "1. 生成完整的HTML代码，包括<!DOCTYPE html>、<head>、<body>等所有必要的标签\n" +
+        "2. 使用现代化的CSS样式，界面美观、响应式设计\n" +
+        "3. 包含必要的JavaScript代码实现功能\n" +
+        "4. HTML应该是自包含的，可以直接在浏览器中打开使用\n" +
+        "5. 代码要规范、易读，有适当的注释\n" +
+        "6. 确保功能完整可用，能够直接运行\n\n" +
+        "请直接输出HTML代码，不要包含任何额外的说明文字或markdown代码块标记。只返回纯HTML代码。";
+    
     /**
      * 根据用户需求生成HTML工具
      */
     public abstract String generateHtmlTool(String userRequest, String systemPrompt) throws Exception;
     
+    /**
+     * 流式生成HTML工具，每收到一段内容回调一次onDelta，返回完整内容
+     * 默认实现退化为阻塞调用，生成完成后一次性回调
+     */
+    public String generateHtmlToolStream(String userRequest, String systemPrompt, Consumer<String> onDelta) throws Exception {
+        String content = generateHtmlTool(userRequest, systemPrompt);
+        if (content != null && !content.isEmpty()) {
+            onDelta.accept(content);
+        }
+        return content;
+    }
+    
+    /**
+     * 探测服务是否可达（用于熔断后的后台探测，不消耗模型调用）
+     * 默认认为可达，由半开状态下的真实请求验证
+     */
+    public boolean probe() {
+        return true;
+    }
+    
     /**
      * 关闭客户端资源
      */
@@ -32,54 +75,14 @@ public abstract class AIClient {
      * 获取默认系统提示词
      */
     protected String getDefaultSystemPrompt() {
-        return "你是一个专业的HTML工具生成专家。根据用户的需求，生成一个完整、可用的HTML工具页面。\n\n" +
-               "要求：\n" +
-               "1. 生成完整的HTML代码，包括<!DOCTYPE html>、<head>、<body>等所有必要的标签\n" +
-               "2. 使用现代化的CSS样式，界面美观、响应式设计\n" +
-               "3. 包含必要的JavaScript代码实现功能\n" +
-               "4. HTML应该是自包含的，可以直接在浏览器中打开使用\n" +
-               "5. 代码要规范、易读，有适当的注释\n" +
-               "6. 确保功能完整可用，能够直接运行\n\n" +
-               "请直接输出HTML代码，不要包含任何额外的说明文字或markdown代码块标记。只返回纯HTML代码。";
+        return DEFAULT_SYSTEM_PROMPT;
     }
     
     /**
-     * 从AI返回的内容中提取HTML代码
+     * 从AI返回的内容中提取HTML代码（去除说明文字和markdown代码块标记）
      */
     protected String extractHtml(String content) {
-        if (content == null || content.trim().isEmpty()) {
-            return "";
-        }
-        
-        content = content.trim();
-        
-        // 移除可能的markdown代码块标记
-        if (content.contains("```html")) {
-            int start = content.indexOf("```html") + 7;
-            int end = content.indexOf("```", start);
-            if (end != -1) {
-                content = content.substring(start, end).trim();
-            }
-        } else if (content.contains("```")) {
-            int start = content.indexOf("```") + 3;
-            int end = content.indexOf("```", start);
-            if (end != -1) {
-                content = content.substring(start, end).trim();
-            }
-        }
-        
-        // 确保以<!DOCTYPE开头
-        if (!content.startsWith("<!DOCTYPE") && !content.startsWith("<html")) {
-            int htmlStart = content.indexOf("<html");
-            if (htmlStart == -1) {
-                htmlStart = content.indexOf("<!DOCTYPE");
-            }
-            if (htmlStart != -1) {
-                content = content.substring(htmlStart);
-            }
-        }
-        
-        return content.trim();
+        return HtmlStreamExtractor.extract(content);
     }
 }
 
@@ -88,6 +91,13 @@ public abstract class AIClient {
  */
 class DoubaoClient extends AIClient {
     
+    private static final Logger logger = LoggerFactory.getLogger(DoubaoClient.class);
+    
+    // 可达性探测使用的HTTP客户端（短超时，与ArkService共用连接池）
+    private static final OkHttpClient PROBE_CLIENT = HttpClients.withTimeouts(5, 5, TimeUnit.SECONDS);
+    // 开启DEBUG日志时输出提示词的请求比例（0~1）
+    private static final double PROMPT_LOG_SAMPLE_RATE = Config.getDouble("PROMPT_LOG_SAMPLE_RATE", 0.01);
+    
     private final String apiKey;
     private final String endpointId;
     private final String baseUrl;
@@ -112,10 +122,14 @@ class DoubaoClient extends AIClient {
             throw new IllegalArgumentException("请配置API密钥");
         }
         
-        // 创建ArkService实例
+        // 创建ArkService实例（共用连接池和调度器，复用到同一接入点的连接）
         this.arkService = ArkService.builder()
                 .apiKey(apiKey)
                 .baseUrl(baseUrl)
+                .connectTimeout(HttpClients.connectTimeout())
+                .timeout(HttpClients.readTimeout())
+                .connectionPool(HttpClients.connectionPool())
+                .dispatcher(HttpClients.dispatcher())
                 .build();
     }
     
@@ -136,18 +150,72 @@ class DoubaoClient extends AIClient {
         }
     }
     
+    @Override
+    public String generateHtmlToolStream(String userRequest, String systemPrompt, Consumer<String> onDelta) throws Exception {
+        if (systemPrompt == null) {
+            systemPrompt = getDefaultSystemPrompt();
+        }
+        
+        try {
+            return streamWithArkSdk(userRequest, systemPrompt, onDelta);
+        } catch (Exception e) {
+            String errorMsg = e.getMessage();
+            if (errorMsg == null || errorMsg.isEmpty()) {
+                errorMsg = "AI请求失败";
+            }
+            throw new Exception("AI生成失败: " + errorMsg, e);
+        }
+    }
+    
     /**
-     * 使用ARK SDK生成
+     * 使用ARK SDK生成（阻塞调用）
+     * 返回前去除说明文字和markdown代码块标记，与流式生成的结果一致
      */
     private String generateWithArkSdk(String userRequest, String systemPrompt) throws Exception {
-        // 打印输入提示词，便于调试
-        System.out.println("========== AI 请求调试信息 ==========");
-        System.out.println("系统提示词 (System Prompt):");
-        System.out.println(systemPrompt != null ? systemPrompt : "(未设置)");
-        System.out.println("\n用户请求 (User Request):");
-        System.out.println(userRequest != null ? userRequest : "(空)");
-        System.out.println("=====================================\n");
+        logRequestDebugInfo(userRequest, systemPrompt);
+        
+        CreateResponsesRequest request = buildRequest(userRequest, systemPrompt, false);
         
+        // 发送请求
+        ResponseObject response = arkService.createResponse(request);
+        ItemOutputMessage message = (ItemOutputMessage) response.getOutput().get(0);
+        OutputContentItemText out  = (OutputContentItemText) message.getContent().get(0);
+        return extractHtml(out.getText());
+    }
+    
+    /**
+     * 使用ARK SDK流式生成（Responses API的流式事件），边接收边提取HTML，逐段回调提取出的内容
+     */
+    private String streamWithArkSdk(String userRequest, String systemPrompt, Consumer<String> onDelta) throws Exception {
+        logRequestDebugInfo(userRequest, systemPrompt);
+        
+        CreateResponsesRequest request = buildRequest(userRequest, systemPrompt, true);
+        
+        HtmlStreamExtractor extractor = new HtmlStreamExtractor(onDelta);
+        arkService.streamResponse(request).blockingForEach(event -> {
+            if (event instanceof OutputTextDeltaEvent) {
+                extractor.accept(((OutputTextDeltaEvent) event).getDelta());
+            }
+        });
+        return extractor.finish();
+    }
+    
+    /**
+     * 输出输入提示词，便于调试
+     * 只在DEBUG级别按PROMPT_LOG_SAMPLE_RATE抽样输出，未开启DEBUG时不拼接任何字符串
+     */
+    private void logRequestDebugInfo(String userRequest, String systemPrompt) {
+        if (!logger.isDebugEnabled() || ThreadLocalRandom.current().nextDouble() >= PROMPT_LOG_SAMPLE_RATE) {
+            return;
+        }
+        logger.debug("AI请求 client={} systemPrompt={} userRequest={}", getClientName(),
+            systemPrompt != null ? systemPrompt : "(未设置)", userRequest != null ? userRequest : "(空)");
+    }
+    
+    /**
+     * 构建Responses API请求（系统消息 + 用户消息）
+     */
+    private CreateResponsesRequest buildRequest(String userRequest, String systemPrompt, boolean stream) {
         // 验证endpoint ID
         String model = endpointId != null && !endpointId.isEmpty() ? endpointId : "doubao-pro-32k";
         
@@ -177,29 +245,31 @@ class DoubaoClient extends AIClient {
         inputBuilder.addListItem(userMessage);
         
         // 构建请求
-        CreateResponsesRequest request = CreateResponsesRequest.builder()
+        return CreateResponsesRequest.builder()
                 .model(model)
                 .input(inputBuilder.build())
+                .stream(stream)
                 .build();
-        
-        // 发送请求
-        ResponseObject response = arkService.createResponse(request);
-        ItemOutputMessage message = (ItemOutputMessage) response.getOutput().get(0);
-        OutputContentItemText out  = (OutputContentItemText) message.getContent().get(0);
-        return out.getText();
     }
     
+    /**
+     * 探测API地址是否可达：收到非5xx的HTTP响应（包括401/404）即认为网络和服务可达
+     */
     @Override
-    public void shutdown() {
-        if (arkService != null) {
-            try {
-                arkService.shutdownExecutor();
-            } catch (Exception e) {
-                // 忽略关闭时的异常
-            }
+    public boolean probe() {
+        Request request = new Request.Builder().url(baseUrl).get().build();
+        try (Response response = PROBE_CLIENT.newCall(request).execute()) {
+            return response.code() < 500;
+        } catch (Exception e) {
+            return false;
         }
     }
     
+    @Override
+    public void shutdown() {
+        // 连接池和调度器由所有客户端共享（守护线程），这里不关闭，避免影响其他客户端
+    }
+    
     private String clientName = "豆包(Doubao)";
     
     /**
@@ -39,6 +39,9 @@ public class AIClientFactory {
      */
     public static AIFailoverManager createFailoverManager() {
         List<AIClient> clients = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        List<RateLimiter> rateLimiters = new ArrayList<>();
+        long backoffMillis = Config.getLong("AI_RATE_LIMIT_BACKOFF_MS", 5000);
         
         // 1. 尝试创建第一个豆包客户端（优先级1）
         try {
@@ -50,6 +53,9 @@ public class AIClientFactory {
                 DoubaoClient doubaoClient = new DoubaoClient(doubaoApiKey, doubaoEndpointId, null, null, doubaoBaseUrl);
                 doubaoClient.setClientName("豆包(Doubao-主)");
                 clients.add(doubaoClient);
+                weights.add(Config.getInt("DOUBAO_WEIGHT", 1));
+                rateLimiters.add(new RateLimiter(doubaoClient.getClientName(),
+                    Config.getInt("DOUBAO_RPM", 0), Config.getInt("DOUBAO_TPM", 0), backoffMillis));
                 System.out.println("✓ 已配置豆包(Doubao)客户端 - 主接入点");
             }
         } catch (Exception e) {
@@ -66,6 +72,9 @@ public class AIClientFactory {
                 DoubaoClient doubaoClient2 = new DoubaoClient(doubaoApiKey2, doubaoEndpointId2, null, null, doubaoBaseUrl2);
                 doubaoClient2.setClientName("豆包(Doubao-备用)");
                 clients.add(doubaoClient2);
+                weights.add(Config.getInt("DOUBAO_WEIGHT_2", 1));
+                rateLimiters.add(new RateLimiter(doubaoClient2.getClientName(),
+                    Config.getInt("DOUBAO_RPM_2", 0), Config.getInt("DOUBAO_TPM_2", 0), backoffMillis));
                 System.out.println("✓ 已配置豆包(Doubao)客户端 - 备用接入点");
             }
         } catch (Exception e) {
@@ -82,6 +91,9 @@ public class AIClientFactory {
                 DoubaoClient doubaoClient3 = new DoubaoClient(doubaoApiKey3, doubaoEndpointId3, null, null, doubaoBaseUrl3);
                 doubaoClient3.setClientName("豆包(Doubao-备用2)");
                 clients.add(doubaoClient3);
+                weights.add(Config.getInt("DOUBAO_WEIGHT_3", 1));
+                rateLimiters.add(new RateLimiter(doubaoClient3.getClientName(),
+                    Config.getInt("DOUBAO_RPM_3", 0), Config.getInt("DOUBAO_TPM_3", 0), backoffMillis));
                 System.out.println("✓ 已配置豆包(Doubao)客户端 - 备用接入点2");
             }
         } catch (Exception e) {
@@ -96,7 +108,7 @@ public class AIClientFactory {
             return null;
         }
         
-        return new AIFailoverManager(clients);
+        return new AIFailoverManager(clients, weights.stream().mapToInt(Integer::intValue).toArray(), rateLimiters);
     }
     
     /**
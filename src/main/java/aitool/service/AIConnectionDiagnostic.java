@@ -169,10 +169,7 @@ public class AIConnectionDiagnostic {
         String baseUrl = Config.get("DOUBAO_BASE_URL", "https://ark.cn-beijing.volces.com/api/v3");
         String url = baseUrl + "/chat/completions";
         
-        OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(TEST_TIMEOUT, TimeUnit.SECONDS)
-            .readTimeout(TEST_TIMEOUT, TimeUnit.SECONDS)
-            .build();
+        OkHttpClient client = HttpClients.withTimeouts(TEST_TIMEOUT, TEST_TIMEOUT, TimeUnit.SECONDS);
         
         // 发送一个简单的请求（不带认证，预期会返回401或403，但能证明端点可达）
         Request request = new Request.Builder()
@@ -229,10 +226,7 @@ public class AIConnectionDiagnostic {
         String baseUrl = Config.get("DOUBAO_BASE_URL", "https://ark.cn-beijing.volces.com/api/v3");
         String url = baseUrl + "/chat/completions";
         
-        OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(TEST_TIMEOUT, TimeUnit.SECONDS)
-            .readTimeout(TEST_TIMEOUT, TimeUnit.SECONDS)
-            .build();
+        OkHttpClient client = HttpClients.withTimeouts(TEST_TIMEOUT, TEST_TIMEOUT, TimeUnit.SECONDS);
         
         // 构建一个最小的测试请求
         JsonObject requestBody = new JsonObject();
@@ -1,24 +1,89 @@
 package aitool.service;
 
+import aitool.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * AI容灾管理器
  * 支持多个AI客户端，当某个客户端失败时自动切换到下一个
+ * 每个客户端带有熔断器（ClientHealth），熔断中的客户端直接跳过，连接类故障由后台线程探测恢复
+ * 每个客户端带有限流器（RateLimiter），调用前排队获取令牌，排队超时则切换到下一个客户端
+ * 请求在客户端之间的分配由负载均衡策略（AI_LB_POLICY，见LoadBalancer）决定，默认按优先级
+ * 可选对冲模式（AI_HEDGE_ENABLED，仅流式调用）：主客户端超过p95首片段延迟仍未输出内容时，
+ * 把同一请求发给下一个健康的客户端，先输出内容的一方胜出，另一方在收到首个片段或被中断时终止流式调用。
+ * 阻塞调用无法中途取消底层的同步HTTP请求，落败方仍会完整执行（照样计费），因此不做对冲
  */
 public class AIFailoverManager {
     
+    private static final Logger logger = LoggerFactory.getLogger(AIFailoverManager.class);
+    
+    // 失败原因分类（analyzeFailureReason的返回值，熔断器据此决定熔断策略）
+    static final String REASON_CONNECTION = "连接失败或超时";
+    static final String REASON_AUTH = "认证失败：API密钥无效或已过期";
+    static final String REASON_QUOTA = "配额不足或请求频率超限";
+    static final String REASON_UNAVAILABLE = "服务暂时不可用";
+    static final String REASON_BILLING = "账户欠费或余额不足";
+    static final String REASON_UNKNOWN = "未知错误";
+    
     private final List<AIClient> clients;
+    private final List<ClientHealth> healths;
     private final AtomicInteger currentIndex;
     private final String clientNames;
+    private final ScheduledExecutorService probeScheduler;
+    private final LoadBalancer loadBalancer;
+    private final List<RateLimiter> rateLimiters;
+    private final long rateLimitMaxWaitMillis;
+    private final long expectedOutputTokens;
+    
+    // 对冲请求配置与统计
+    private final boolean hedgeEnabled;
+    private final double hedgePercentile;
+    private final int hedgeMinSamples;
+    private final long hedgeDefaultFirstTokenDelayMillis;
+    private final int hedgeMaxThreads;
+    private final ExecutorService hedgeExecutor;
+    private final LatencyTracker completionLatency = new LatencyTracker(200);
+    private final LatencyTracker firstTokenLatency = new LatencyTracker(200);
+    private final AtomicLong hedgedRequests = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
     
     /**
      * 创建容灾管理器
      * @param clients AI客户端列表（按优先级排序）
      */
     public AIFailoverManager(List<AIClient> clients) {
+        this(clients, null, null);
+    }
+    
+    /**
+     * 创建容灾管理器
+     * @param clients AI客户端列表（按优先级排序）
+     * @param weights 各客户端权重（weighted负载均衡策略使用，为null时均为1）
+     * @param rateLimiters 各客户端限流器（为null或缺少时不限速，只在服务端限流时退避）
+     */
+    public AIFailoverManager(List<AIClient> clients, int[] weights, List<RateLimiter> rateLimiters) {
         if (clients == null || clients.isEmpty()) {
             throw new IllegalArgumentException("AI客户端列表不能为空");
         }
@@ -35,7 +100,70 @@ public class AIFailoverManager {
         }
         this.clientNames = names.toString();
         
+        // 每个客户端一个熔断器
+        int failureThreshold = Config.getInt("AI_BREAKER_FAILURE_THRESHOLD", 2);
+        long cooldownMillis = Config.getLong("AI_BREAKER_COOLDOWN_SECONDS", 30) * 1000L;
+        long maxCooldownMillis = Config.getLong("AI_BREAKER_MAX_COOLDOWN_SECONDS", 300) * 1000L;
+        long hardCooldownMillis = Config.getLong("AI_BREAKER_AUTH_COOLDOWN_SECONDS", 300) * 1000L;
+        this.healths = new ArrayList<>();
+        for (AIClient client : this.clients) {
+            healths.add(new ClientHealth(client.getClientName(), failureThreshold,
+                cooldownMillis, maxCooldownMillis, hardCooldownMillis));
+        }
+        
+        // 后台探测熔断中的客户端
+        long probeInterval = Math.max(1, Config.getLong("AI_BREAKER_PROBE_INTERVAL_SECONDS", 10));
+        this.probeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ai-health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.probeScheduler.scheduleWithFixedDelay(this::probeOpenClients, probeInterval, probeInterval, TimeUnit.SECONDS);
+        
+        // 负载均衡策略
+        String policyValue = Config.get("AI_LB_POLICY", "priority");
+        LoadBalancer.Policy policy = LoadBalancer.Policy.parse(policyValue);
+        if (policy == null) {
+            System.out.println("⚠ 未知的负载均衡策略 AI_LB_POLICY=" + policyValue + "，使用priority");
+            policy = LoadBalancer.Policy.PRIORITY;
+        }
+        this.loadBalancer = new LoadBalancer(policy, weights, healths);
+        
+        // 限流
+        long backoffMillis = Config.getLong("AI_RATE_LIMIT_BACKOFF_MS", 5000);
+        this.rateLimiters = new ArrayList<>();
+        for (int i = 0; i < this.clients.size(); i++) {
+            RateLimiter limiter = rateLimiters != null && i < rateLimiters.size() ? rateLimiters.get(i) : null;
+            this.rateLimiters.add(limiter != null ? limiter
+                : new RateLimiter(this.clients.get(i).getClientName(), 0, 0, backoffMillis));
+        }
+        this.rateLimitMaxWaitMillis = Math.max(0, Config.getLong("AI_RATE_LIMIT_MAX_WAIT_MS", 30000));
+        this.expectedOutputTokens = Math.max(0, Config.getLong("AI_EXPECTED_OUTPUT_TOKENS", 4000));
+        
+        // 对冲请求（至少需要两个客户端）
+        this.hedgeEnabled = Config.getBool("AI_HEDGE_ENABLED", false) && this.clients.size() > 1;
+        this.hedgePercentile = Math.max(1, Math.min(100, Config.getInt("AI_HEDGE_PERCENTILE", 95)));
+        this.hedgeMinSamples = Math.max(1, Config.getInt("AI_HEDGE_MIN_SAMPLES", 20));
+        this.hedgeDefaultFirstTokenDelayMillis = Config.getLong("AI_HEDGE_FIRST_TOKEN_DELAY_MS", 5000);
+        this.hedgeMaxThreads = Math.max(2, Config.getInt("AI_HEDGE_MAX_THREADS", 32));
+        if (hedgeEnabled) {
+            // 线程数有上限，不排队：线程用满时本次请求退回普通的流式容灾（见generateHtmlToolStream）
+            AtomicInteger threadCount = new AtomicInteger();
+            this.hedgeExecutor = new ThreadPoolExecutor(0, hedgeMaxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread thread = new Thread(r, "ai-hedge-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            System.out.println("✓ AI对冲请求已启用（流式调用，p" + (int) hedgePercentile + " 首片段延迟后发送到下一个客户端）");
+        } else {
+            this.hedgeExecutor = null;
+        }
+        
         System.out.println("✓ AI容灾管理器已初始化，客户端优先级: " + clientNames);
+        if (policy != LoadBalancer.Policy.PRIORITY) {
+            System.out.println("  负载均衡策略: " + policy.name().toLowerCase());
+        }
     }
     
     /**
@@ -46,39 +174,47 @@ public class AIFailoverManager {
      * @throws Exception 所有客户端都失败时抛出异常
      */
     public String generateHtmlTool(String userRequest, String systemPrompt) throws Exception {
+        // 阻塞调用不对冲：同步HTTP请求无法中途取消，落败方会完整执行
         List<Exception> errors = new ArrayList<>();
-        int startIndex = currentIndex.get();
+        int[] order = loadBalancer.order(currentIndex.get());
         int attempts = 0;
+        long estimatedTokens = estimateTokens(userRequest, systemPrompt);
         
-        // 尝试所有客户端（从当前索引开始，循环一圈）
+        // 尝试所有客户端（按负载均衡给出的顺序）
         while (attempts < clients.size()) {
-            int index = (startIndex + attempts) % clients.size();
+            int index = order[attempts];
             AIClient client = clients.get(index);
+            ClientHealth health = healths.get(index);
+            
+            // 熔断中的客户端直接跳过
+            if (!health.tryAcquire(System.currentTimeMillis())) {
+                logger.info("跳过熔断中的客户端 client={}", client.getClientName());
+                attempts++;
+                continue;
+            }
             
+            // 排队获取限流令牌，超时则切换到下一个客户端
+            if (!acquireRateLimit(index, estimatedTokens, rateLimitMaxWaitMillis, errors)) {
+                attempts++;
+                continue;
+            }
+            
+            long start = System.currentTimeMillis();
+            loadBalancer.onStart(index);
             try {
-                System.out.println("🔄 尝试使用 " + client.getClientName() + " 生成内容...");
+                logger.debug("调用AI客户端 client={} stream=false", client.getClientName());
                 String result = client.generateHtmlTool(userRequest, systemPrompt);
                 
                 // 验证结果
-                if (result != null && result.length() > 100) {
-                    if (result.contains("<!DOCTYPE") || result.contains("<html")) {
-                        System.out.println("✓ " + client.getClientName() + " 生成成功！");
-                        // 更新当前索引，下次优先使用成功的客户端
-                        currentIndex.set(index);
-                        return result;
-                    } else {
-                        throw new Exception("生成的内容格式不正确，缺少必要的HTML标签");
-                    }
-                } else {
-                    throw new Exception("生成的内容过短，可能生成失败");
-                }
+                validateHtml(result);
+                recordSuccess(index, System.currentTimeMillis() - start, estimatedTokens, userRequest, systemPrompt, result);
+                // 更新当前索引，下次优先使用成功的客户端
+                currentIndex.set(index);
+                return result;
             } catch (Exception e) {
                 String errorMsg = e.getMessage();
-                System.out.println("⚠ " + client.getClientName() + " 调用失败: " + errorMsg);
-                
-                // 分析失败原因
-                String reason = analyzeFailureReason(errorMsg, e);
-                System.out.println("   失败原因: " + reason);
+                // 分析失败原因，记录到熔断器和限流器
+                recordFailure(index, e, System.currentTimeMillis() - start);
                 
                 errors.add(new Exception(client.getClientName() + ": " + errorMsg, e));
                 
@@ -86,13 +222,446 @@ public class AIFailoverManager {
                 // 如果是永久性错误（如认证失败、配额不足），也继续尝试下一个（可能其他服务可用）
                 attempts++;
                 
-                if (attempts < clients.size()) {
-                    System.out.println("🔄 自动切换到下一个AI服务...");
-                }
+            } finally {
+                loadBalancer.onFinish(index);
             }
         }
         
         // 所有客户端都失败了
+        throw allFailed(errors);
+    }
+    
+    /**
+     * 流式生成HTML工具（带容灾机制）
+     * 只有在当前客户端尚未输出任何内容时才会切换到下一个客户端，已输出部分内容后失败则直接抛出异常
+     * @param onDelta 每收到一段内容时的回调
+     * @return 生成的完整HTML内容
+     */
+    public String generateHtmlToolStream(String userRequest, String systemPrompt, Consumer<String> onDelta) throws Exception {
+        if (hedgeEnabled) {
+            try {
+                return generateHedged(userRequest, systemPrompt, onDelta);
+            } catch (RejectedExecutionException e) {
+                // 主调用都没能启动，按普通流式容灾在当前线程执行
+                logger.warn("对冲线程池已满，本次不对冲 maxThreads={}", hedgeMaxThreads);
+            }
+        }
+        List<Exception> errors = new ArrayList<>();
+        int[] order = loadBalancer.order(currentIndex.get());
+        int attempts = 0;
+        long estimatedTokens = estimateTokens(userRequest, systemPrompt);
+        
+        while (attempts < clients.size()) {
+            int index = order[attempts];
+            AIClient client = clients.get(index);
+            ClientHealth health = healths.get(index);
+            AtomicBoolean emitted = new AtomicBoolean(false);
+            
+            if (!health.tryAcquire(System.currentTimeMillis())) {
+                logger.info("跳过熔断中的客户端 client={}", client.getClientName());
+                attempts++;
+                continue;
+            }
+            
+            if (!acquireRateLimit(index, estimatedTokens, rateLimitMaxWaitMillis, errors)) {
+                attempts++;
+                continue;
+            }
+            
+            long start = System.currentTimeMillis();
+            loadBalancer.onStart(index);
+            try {
+                logger.debug("调用AI客户端 client={} stream=true", client.getClientName());
+                String result = client.generateHtmlToolStream(userRequest, systemPrompt, delta -> {
+                    if (emitted.compareAndSet(false, true)) {
+                        firstTokenLatency.record(System.currentTimeMillis() - start);
+                    }
+                    onDelta.accept(delta);
+                });
+                
+                validateHtml(result);
+                recordSuccess(index, System.currentTimeMillis() - start, estimatedTokens, userRequest, systemPrompt, result);
+                currentIndex.set(index);
+                return result;
+            } catch (Exception e) {
+                String errorMsg = e.getMessage();
+                recordFailure(index, e, System.currentTimeMillis() - start);
+                
+                if (emitted.get()) {
+                    // 已向调用方输出部分内容，无法再切换到其他客户端
+                    throw new Exception(client.getClientName() + " 流式输出中断: " + errorMsg, e);
+                }
+                
+                errors.add(new Exception(client.getClientName() + ": " + errorMsg, e));
+                attempts++;
+                
+            } finally {
+                loadBalancer.onFinish(index);
+            }
+        }
+        
+        throw allFailed(errors);
+    }
+    
+    /**
+     * 排队获取限流令牌
+     * @return 是否获得令牌；排队超时时记录错误并返回false
+     */
+    private boolean acquireRateLimit(int index, long estimatedTokens, long maxWaitMillis, List<Exception> errors) throws InterruptedException {
+        try {
+            rateLimiters.get(index).acquire(estimatedTokens, maxWaitMillis);
+            return true;
+        } catch (RateLimiter.QueueTimeoutException e) {
+            // 请求并未发出，只释放熔断器的试探名额
+            healths.get(index).onCancelled();
+            logger.info("限流排队超时，跳过 error={}", e.getMessage());
+            errors.add(e);
+            return false;
+        } catch (InterruptedException e) {
+            healths.get(index).onCancelled();
+            throw e;
+        }
+    }
+    
+    /**
+     * 预估一次请求消耗的Token数：输入文本 + 预期输出
+     */
+    private long estimateTokens(String userRequest, String systemPrompt) {
+        return RateLimiter.estimateTokens(userRequest) + RateLimiter.estimateTokens(systemPrompt) + expectedOutputTokens;
+    }
+    
+    /**
+     * 记录一次成功调用：熔断器、延迟统计，并按实际输出修正限流器的Token预估
+     */
+    private void recordSuccess(int index, long latencyMillis, long estimatedTokens,
+                               String userRequest, String systemPrompt, String result) {
+        healths.get(index).onSuccess(latencyMillis);
+        completionLatency.record(latencyMillis);
+        Metrics.aiCall(clients.get(index).getClientName(), true, latencyMillis);
+        long actualTokens = RateLimiter.estimateTokens(userRequest) + RateLimiter.estimateTokens(systemPrompt)
+            + RateLimiter.estimateTokens(result);
+        RateLimiter limiter = rateLimiters.get(index);
+        limiter.reconcile(actualTokens - estimatedTokens);
+        limiter.onSuccess();
+        logger.info("AI调用成功 client={} latencyMs={}", clients.get(index).getClientName(), latencyMillis);
+    }
+    
+    /**
+     * 记录一次失败调用：分析失败原因并更新熔断器和指标；服务端限流时按Retry-After暂停该客户端的限流器
+     */
+    private void recordFailure(int index, Exception e, long latencyMillis) {
+        String errorMsg = e.getMessage();
+        String reason = analyzeFailureReason(errorMsg, e);
+        logger.warn("AI调用失败 client={} latencyMs={} reason={} error={}", clients.get(index).getClientName(),
+            latencyMillis, reasonCategory(reason), errorMsg);
+        healths.get(index).onFailure(reason, latencyMillis, System.currentTimeMillis());
+        Metrics.aiCall(clients.get(index).getClientName(), false, latencyMillis);
+        Metrics.aiFailure(clients.get(index).getClientName(), reasonCategory(reason));
+        if (REASON_QUOTA.equals(reason)) {
+            rateLimiters.get(index).onRateLimited(RateLimiter.parseRetryAfterMillis(errorMsg));
+        }
+    }
+    
+    /**
+     * 失败原因对应的指标标签值
+     */
+    static String reasonCategory(String reason) {
+        switch (reason) {
+            case REASON_CONNECTION:
+                return "connection";
+            case REASON_AUTH:
+                return "auth";
+            case REASON_QUOTA:
+                return "quota";
+            case REASON_UNAVAILABLE:
+                return "unavailable";
+            case REASON_BILLING:
+                return "billing";
+            default:
+                return "unknown";
+        }
+    }
+    
+    /**
+     * 对冲请求中单个客户端调用的事件
+     */
+    private static final class AttemptEvent {
+        final int index;
+        final boolean firstToken;
+        final String result;
+        final Exception error;
+        final long latencyMillis;
+        
+        AttemptEvent(int index, boolean firstToken, String result, Exception error, long latencyMillis) {
+            this.index = index;
+            this.firstToken = firstToken;
+            this.result = result;
+            this.error = error;
+            this.latencyMillis = latencyMillis;
+        }
+    }
+    
+    /**
+     * 对冲请求中正在进行的一次客户端调用
+     * started保证熔断器名额只释放一次：尚未开始执行就被取消时由cancelOthers释放，否则由runAttempt在调用真正结束时释放
+     */
+    private static final class Attempt {
+        final AtomicBoolean started = new AtomicBoolean(false);
+        volatile boolean cancelled;
+        Future<?> future;
+    }
+    
+    /**
+     * 带对冲的流式生成
+     * 先调用当前优先的客户端；超过对冲延迟仍未输出首个片段时，再把同一请求发给下一个健康的客户端。
+     * 先输出首个片段的一方胜出，之后只转发胜出方的内容；落败方被中断，或在收到自己的首个片段时终止流式调用。
+     * 某个客户端失败时立即尝试下一个，与普通容灾行为一致。
+     * @throws RejectedExecutionException 对冲线程池已满，主调用未能启动
+     */
+    private String generateHedged(String userRequest, String systemPrompt, Consumer<String> onDelta) throws Exception {
+        long hedgeDelay = hedgeDelayMillis();
+        BlockingQueue<AttemptEvent> events = new LinkedBlockingQueue<>();
+        Map<Integer, Attempt> running = new HashMap<>();
+        AtomicInteger winner = new AtomicInteger(-1);
+        List<Exception> errors = new ArrayList<>();
+        int[] order = loadBalancer.order(currentIndex.get());
+        int[] nextOffset = {0};
+        boolean hedged = false;
+        long estimatedTokens = estimateTokens(userRequest, systemPrompt);
+        
+        try {
+            if (!launchNext(userRequest, systemPrompt, onDelta, estimatedTokens, rateLimitMaxWaitMillis,
+                    order, nextOffset, running, winner, events, false)) {
+                throw allFailed(errors);
+            }
+            int primaryIndex = running.keySet().iterator().next();
+            
+            while (true) {
+                boolean canHedge = !hedged && winner.get() < 0 && nextOffset[0] < clients.size();
+                AttemptEvent event = canHedge ? events.poll(hedgeDelay, TimeUnit.MILLISECONDS) : events.take();
+                
+                if (event == null) {
+                    // 超过对冲延迟仍未输出首个片段，把请求同时发给下一个健康的客户端
+                    hedged = true;
+                    logger.info("发送对冲请求 hedgeDelayMs={}", hedgeDelay);
+                    // 对冲请求不排队等待限流令牌，避免在该客户端已达上限时加剧拥塞
+                    if (launchNext(userRequest, systemPrompt, onDelta, estimatedTokens, 0,
+                            order, nextOffset, running, winner, events, true)) {
+                        hedgedRequests.incrementAndGet();
+                    }
+                    continue;
+                }
+                
+                int index = event.index;
+                if (!running.containsKey(index)) {
+                    // 已被取消的调用，熔断器名额由runAttempt释放
+                    continue;
+                }
+                
+                if (event.firstToken) {
+                    // 该客户端率先输出内容，取消其他调用
+                    firstTokenLatency.record(event.latencyMillis);
+                    cancelOthers(running, index);
+                    continue;
+                }
+                
+                running.remove(index);
+                int winnerIndex = winner.get();
+                if (winnerIndex >= 0 && winnerIndex != index) {
+                    // 落败的一方（其首个片段晚于胜出方），已在runAttempt中按取消处理
+                    continue;
+                }
+                if (event.error == null) {
+                    recordSuccess(index, event.latencyMillis, estimatedTokens, userRequest, systemPrompt, event.result);
+                    if (hedged && index != primaryIndex) {
+                        hedgeWins.incrementAndGet();
+                    }
+                    currentIndex.set(index);
+                    return event.result;
+                }
+                
+                // 失败已在runAttempt中记录到熔断器和限流器
+                String clientName = clients.get(index).getClientName();
+                String errorMsg = event.error.getMessage();
+                if (winnerIndex == index) {
+                    // 已向调用方输出部分内容，无法再切换到其他客户端
+                    throw new Exception(clientName + " 流式输出中断: " + errorMsg, event.error);
+                }
+                errors.add(event.error instanceof RateLimiter.QueueTimeoutException ? event.error
+                    : new Exception(clientName + ": " + errorMsg, event.error));
+                
+                if (running.isEmpty()) {
+                    if (!launchNext(userRequest, systemPrompt, onDelta, estimatedTokens, rateLimitMaxWaitMillis,
+                            order, nextOffset, running, winner, events, false)) {
+                        throw allFailed(errors);
+                    }
+                }
+            }
+        } finally {
+            // 返回或失败时取消仍在进行的调用
+            cancelOthers(running, -1);
+        }
+    }
+    
+    /**
+     * 按负载均衡给出的顺序启动下一个未熔断的客户端
+     * 对冲线程池已满时：对冲调用直接放弃；主调用抛出RejectedExecutionException，由调用方退回普通容灾
+     * @param hedge 是否为对冲调用
+     * @return 是否有客户端被启动
+     */
+    private boolean launchNext(String userRequest, String systemPrompt, Consumer<String> onDelta,
+                               long estimatedTokens, long maxRateLimitWaitMillis,
+                               int[] order, int[] nextOffset, Map<Integer, Attempt> running,
+                               AtomicInteger winner, BlockingQueue<AttemptEvent> events, boolean hedge) {
+        while (nextOffset[0] < clients.size()) {
+            int index = order[nextOffset[0]];
+            nextOffset[0]++;
+            AIClient client = clients.get(index);
+            if (!healths.get(index).tryAcquire(System.currentTimeMillis())) {
+                logger.info("跳过熔断中的客户端 client={}", client.getClientName());
+                continue;
+            }
+            logger.debug("调用AI客户端 client={} stream=true", client.getClientName());
+            Attempt attempt = new Attempt();
+            try {
+                attempt.future = hedgeExecutor.submit(LogContext.wrap(() -> runAttempt(index, attempt, userRequest,
+                    systemPrompt, onDelta, estimatedTokens, maxRateLimitWaitMillis, winner, events)));
+            } catch (RejectedExecutionException e) {
+                healths.get(index).onCancelled();
+                if (!hedge) {
+                    throw e;
+                }
+                logger.info("对冲线程池已满，跳过对冲 maxThreads={}", hedgeMaxThreads);
+                return false;
+            }
+            running.put(index, attempt);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * 在对冲线程中执行一次流式调用，结果以事件形式交给调度方
+     * 熔断器和限流器在这里记录：落败或被取消的调用只释放熔断器名额，其余失败按普通失败记录
+     */
+    private void runAttempt(int index, Attempt attempt, String userRequest, String systemPrompt,
+                            Consumer<String> onDelta, long estimatedTokens, long maxRateLimitWaitMillis,
+                            AtomicInteger winner, BlockingQueue<AttemptEvent> events) {
+        if (!attempt.started.compareAndSet(false, true)) {
+            // 开始执行前已被取消
+            return;
+        }
+        AIClient client = clients.get(index);
+        ClientHealth health = healths.get(index);
+        try {
+            rateLimiters.get(index).acquire(estimatedTokens, maxRateLimitWaitMillis);
+        } catch (Exception e) {
+            // 没有拿到限流令牌（排队超时或被取消），请求并未发出
+            health.onCancelled();
+            if (e instanceof RateLimiter.QueueTimeoutException) {
+                logger.info("限流排队超时，跳过 error={}", e.getMessage());
+            }
+            events.add(new AttemptEvent(index, false, null, e, 0));
+            return;
+        }
+        long start = System.currentTimeMillis();
+        loadBalancer.onStart(index);
+        try {
+            String result = client.generateHtmlToolStream(userRequest, systemPrompt, delta -> {
+                if (winner.get() != index) {
+                    if (!winner.compareAndSet(-1, index)) {
+                        // 其他客户端已率先输出，终止本次流式调用（同时取消底层HTTP请求）
+                        throw new CancellationException("对冲请求已由其他客户端完成");
+                    }
+                    events.add(new AttemptEvent(index, true, null, null, System.currentTimeMillis() - start));
+                }
+                onDelta.accept(delta);
+            });
+            validateHtml(result);
+            if (lost(attempt, winner, index)) {
+                health.onCancelled();
+                return;
+            }
+            events.add(new AttemptEvent(index, false, result, null, System.currentTimeMillis() - start));
+        } catch (Exception e) {
+            long latencyMillis = System.currentTimeMillis() - start;
+            if (lost(attempt, winner, index)) {
+                health.onCancelled();
+                logger.debug("对冲调用已终止 client={} latencyMs={}", client.getClientName(), latencyMillis);
+            } else {
+                recordFailure(index, e, latencyMillis);
+            }
+            events.add(new AttemptEvent(index, false, null, e, latencyMillis));
+        } finally {
+            loadBalancer.onFinish(index);
+        }
+    }
+    
+    /**
+     * 调用是否已落败：被调度方取消，或其他客户端已率先输出
+     */
+    private static boolean lost(Attempt attempt, AtomicInteger winner, int index) {
+        int winnerIndex = winner.get();
+        return attempt.cancelled || (winnerIndex >= 0 && winnerIndex != index);
+    }
+    
+    /**
+     * 取消除keepIndex以外仍在进行的调用
+     * 已开始的调用被中断（限流排队或流式读取随之终止并取消底层HTTP请求），熔断器名额由runAttempt在其结束时释放
+     */
+    private void cancelOthers(Map<Integer, Attempt> running, int keepIndex) {
+        running.entrySet().removeIf(entry -> {
+            if (entry.getKey() == keepIndex) {
+                return false;
+            }
+            Attempt attempt = entry.getValue();
+            attempt.cancelled = true;
+            if (attempt.started.compareAndSet(false, true)) {
+                attempt.future.cancel(false);
+                healths.get(entry.getKey()).onCancelled();
+            } else {
+                attempt.future.cancel(true);
+            }
+            logger.info("已取消对冲调用 client={}", clients.get(entry.getKey()).getClientName());
+            return true;
+        });
+    }
+    
+    /**
+     * 对冲延迟：样本足够时取历史首片段延迟的分位数（默认p95），否则使用配置的默认值
+     */
+    private long hedgeDelayMillis() {
+        if (firstTokenLatency.count() < hedgeMinSamples) {
+            return Math.max(1, hedgeDefaultFirstTokenDelayMillis);
+        }
+        return Math.max(1, firstTokenLatency.percentile(hedgePercentile));
+    }
+    
+    /**
+     * 验证生成的内容是否为有效的HTML
+     */
+    private void validateHtml(String result) throws Exception {
+        if (result == null || result.length() <= 100) {
+            throw new Exception("生成的内容过短，可能生成失败");
+        }
+        if (!result.contains("<!DOCTYPE") && !result.contains("<html")) {
+            throw new Exception("生成的内容格式不正确，缺少必要的HTML标签");
+        }
+    }
+    
+    /**
+     * 构建所有客户端均失败时的异常
+     */
+    private Exception allFailed(List<Exception> errors) {
+        if (errors.isEmpty()) {
+            // 没有任何客户端被实际调用（全部处于熔断状态），快速失败
+            long retryAt = Long.MAX_VALUE;
+            for (ClientHealth health : healths) {
+                retryAt = Math.min(retryAt, health.getOpenUntil());
+            }
+            long retrySeconds = Math.max(1, (retryAt - System.currentTimeMillis() + 999) / 1000);
+            return new Exception("所有AI服务均处于熔断状态（" + clientNames + "），请约 " + retrySeconds + " 秒后重试");
+        }
         StringBuilder errorSummary = new StringBuilder();
         errorSummary.append("所有AI服务调用均失败。已尝试的客户端: ").append(clientNames).append("\n");
         errorSummary.append("失败详情:\n");
@@ -100,7 +669,7 @@ public class AIFailoverManager {
             errorSummary.append("  ").append(i + 1).append(". ").append(errors.get(i).getMessage()).append("\n");
         }
         
-        throw new Exception(errorSummary.toString());
+        return new Exception(errorSummary.toString());
     }
     
     /**
@@ -117,36 +686,97 @@ public class AIFailoverManager {
             lowerMsg.contains("timeout") || lowerMsg.contains("超时") ||
             e instanceof java.net.ConnectException || 
             e instanceof java.net.SocketTimeoutException) {
-            return "连接失败或超时";
+            return REASON_CONNECTION;
         }
         
         // 认证相关错误
         if (lowerMsg.contains("认证") || lowerMsg.contains("401") || 
             lowerMsg.contains("unauthorized") || lowerMsg.contains("invalid") ||
             lowerMsg.contains("api key") || lowerMsg.contains("密钥")) {
-            return "认证失败：API密钥无效或已过期";
+            return REASON_AUTH;
         }
         
         // 配额/频率限制错误
         if (lowerMsg.contains("429") || lowerMsg.contains("quota") || 
             lowerMsg.contains("配额") || lowerMsg.contains("limit") ||
             lowerMsg.contains("rate limit") || lowerMsg.contains("频率限制")) {
-            return "配额不足或请求频率超限";
+            return REASON_QUOTA;
         }
         
         // 服务不可用
         if (lowerMsg.contains("503") || lowerMsg.contains("500") ||
             lowerMsg.contains("service unavailable") || lowerMsg.contains("服务不可用")) {
-            return "服务暂时不可用";
+            return REASON_UNAVAILABLE;
         }
         
         // 欠费相关
         if (lowerMsg.contains("payment") || lowerMsg.contains("billing") ||
             lowerMsg.contains("欠费") || lowerMsg.contains("余额不足")) {
-            return "账户欠费或余额不足";
+            return REASON_BILLING;
         }
         
-        return "未知错误";
+        return REASON_UNKNOWN;
+    }
+    
+    /**
+     * 后台探测：对冷却结束、因连接类错误熔断的客户端做一次轻量可达性检查
+     * 可达则进入半开状态，由下一个真实请求验证；不可达则继续熔断（冷却时间翻倍）
+     */
+    private void probeOpenClients() {
+        for (int i = 0; i < clients.size(); i++) {
+            ClientHealth health = healths.get(i);
+            if (!health.awaitingProbe(System.currentTimeMillis())) {
+                continue;
+            }
+            boolean reachable;
+            try {
+                reachable = clients.get(i).probe();
+            } catch (Exception e) {
+                reachable = false;
+            }
+            health.onProbeResult(reachable, System.currentTimeMillis());
+        }
+    }
+    
+    /**
+     * 获取各客户端的熔断状态和健康评分
+     */
+    public List<Map<String, Object>> getStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (int i = 0; i < healths.size(); i++) {
+            Map<String, Object> clientStats = healths.get(i).getStats();
+            clientStats.put("weight", loadBalancer.getWeight(i));
+            clientStats.put("outstanding", loadBalancer.getOutstanding(i));
+            clientStats.put("rateLimit", rateLimiters.get(i).getStats());
+            stats.add(clientStats);
+        }
+        return stats;
+    }
+    
+    /**
+     * 获取延迟分位数与对冲请求统计
+     */
+    public Map<String, Object> getLatencyStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("completionP50Ms", completionLatency.percentile(50));
+        stats.put("completionP95Ms", completionLatency.percentile(95));
+        stats.put("firstTokenP50Ms", firstTokenLatency.percentile(50));
+        stats.put("firstTokenP95Ms", firstTokenLatency.percentile(95));
+        stats.put("hedgeEnabled", hedgeEnabled);
+        if (hedgeEnabled) {
+            stats.put("hedgeFirstTokenDelayMs", hedgeDelayMillis());
+            stats.put("hedgeMaxThreads", hedgeMaxThreads);
+            stats.put("hedgedRequests", hedgedRequests.get());
+            stats.put("hedgeWins", hedgeWins.get());
+        }
+        return stats;
+    }
+    
+    /**
+     * 获取负载均衡策略
+     */
+    public String getLoadBalancePolicy() {
+        return loadBalancer.getPolicy().name().toLowerCase();
     }
     
     /**
@@ -174,6 +804,10 @@ public class AIFailoverManager {
      * 清理资源
      */
     public void shutdown() {
+        probeScheduler.shutdownNow();
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdownNow();
+        }
         for (AIClient client : clients) {
             try {
                 client.shutdown();
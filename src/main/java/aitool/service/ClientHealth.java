@@ -0,0 +1,250 @@
+package aitool.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * AI客户端健康状态（熔断器 + 健康评分）
+ * 熔断器三种状态：
+ * CLOSED（正常放行）-> OPEN（熔断，直接跳过该客户端）-> HALF_OPEN（冷却结束，放行一个试探请求）
+ * 是否熔断由失败原因决定：认证失败、欠费立即熔断；连接超时、服务不可用、限流等连续失败达到阈值或错误率过高时熔断
+ * （限流错误的退避主要由RateLimiter负责，熔断只兜底持续的限流）
+ * 同时维护延迟和错误率的指数加权移动平均（EWMA），用于健康评分
+ */
+public class ClientHealth {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientHealth.class);
+
+    private static final double LATENCY_ALPHA = 0.2;
+    private static final double ERROR_ALPHA = 0.1;
+    private static final int ERROR_RATE_MIN_SAMPLES = 10;
+    private static final double ERROR_RATE_TRIP = 0.5;
+
+    private final String clientName;
+    private final int failureThreshold;
+    private final long baseCooldownMillis;
+    private final long maxCooldownMillis;
+    private final long hardCooldownMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private long currentCooldownMillis;
+    private boolean requiresProbe;
+    private boolean probeInFlight;
+    private String lastFailureReason;
+
+    private double ewmaLatencyMillis = -1;
+    private double ewmaErrorRate;
+    private long successes;
+    private long failures;
+    private long skipped;
+    private long trips;
+
+    /**
+     * @param clientName 客户端名称
+     * @param failureThreshold 连续失败多少次后熔断（临时性错误）
+     * @param baseCooldownMillis 首次熔断的冷却时间
+     * @param maxCooldownMillis 试探失败后冷却时间翻倍的上限
+     * @param hardCooldownMillis 认证失败、欠费等需要人工处理的错误的冷却时间
+     */
+    public ClientHealth(String clientName, int failureThreshold, long baseCooldownMillis,
+                        long maxCooldownMillis, long hardCooldownMillis) {
+        this.clientName = clientName;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.baseCooldownMillis = baseCooldownMillis;
+        this.maxCooldownMillis = Math.max(baseCooldownMillis, maxCooldownMillis);
+        this.hardCooldownMillis = hardCooldownMillis;
+        this.currentCooldownMillis = baseCooldownMillis;
+    }
+
+    /**
+     * 判断是否可以向该客户端发送请求
+     * 熔断冷却结束后：需要后台探测的（连接类错误）等待探测通过；其余进入半开状态，只放行一个试探请求
+     */
+    public synchronized boolean tryAcquire(long now) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now < openUntil || requiresProbe) {
+                    skipped++;
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            case HALF_OPEN:
+            default:
+                if (probeInFlight) {
+                    skipped++;
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    /**
+     * 记录一次成功调用
+     */
+    public synchronized void onSuccess(long latencyMillis) {
+        successes++;
+        updateLatency(latencyMillis);
+        ewmaErrorRate = ewmaErrorRate * (1 - ERROR_ALPHA);
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (state != State.CLOSED) {
+            logger.info("熔断器关闭 client={} state={}", clientName, State.CLOSED);
+        }
+        state = State.CLOSED;
+        currentCooldownMillis = baseCooldownMillis;
+    }
+
+    /**
+     * 记录一次失败调用
+     * @param reason AIFailoverManager.analyzeFailureReason 给出的失败原因分类
+     */
+    public synchronized void onFailure(String reason, long latencyMillis, long now) {
+        failures++;
+        updateLatency(latencyMillis);
+        ewmaErrorRate = ewmaErrorRate * (1 - ERROR_ALPHA) + ERROR_ALPHA;
+        consecutiveFailures++;
+        lastFailureReason = reason;
+
+        boolean hard = AIFailoverManager.REASON_AUTH.equals(reason) || AIFailoverManager.REASON_BILLING.equals(reason);
+
+        if (state == State.HALF_OPEN) {
+            // 试探失败，重新熔断并延长冷却时间
+            probeInFlight = false;
+            trip(reason, hard ? hardCooldownMillis : Math.min(maxCooldownMillis, currentCooldownMillis * 2), now);
+        } else if (state == State.CLOSED) {
+            long samples = successes + failures;
+            if (hard || consecutiveFailures >= failureThreshold
+                    || (samples >= ERROR_RATE_MIN_SAMPLES && ewmaErrorRate > ERROR_RATE_TRIP)) {
+                trip(reason, hard ? hardCooldownMillis : baseCooldownMillis, now);
+            }
+        }
+    }
+
+    private void trip(String reason, long cooldownMillis, long now) {
+        state = State.OPEN;
+        currentCooldownMillis = cooldownMillis;
+        openUntil = now + cooldownMillis;
+        requiresProbe = AIFailoverManager.REASON_CONNECTION.equals(reason)
+            || AIFailoverManager.REASON_UNAVAILABLE.equals(reason);
+        trips++;
+        logger.warn("熔断器打开 client={} state={} reason={} cooldownMs={}", clientName, State.OPEN,
+            AIFailoverManager.reasonCategory(reason), cooldownMillis);
+    }
+
+    /**
+     * 调用被主动取消（如对冲请求中落败的一方），不计入成功或失败，只释放半开状态的试探名额
+     */
+    public synchronized void onCancelled() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * 是否等待后台探测（熔断冷却已结束，且失败原因为连接类错误）
+     */
+    public synchronized boolean awaitingProbe(long now) {
+        return state == State.OPEN && requiresProbe && now >= openUntil;
+    }
+
+    /**
+     * 记录后台探测结果：可达则进入半开状态等待真实请求验证，不可达则继续熔断
+     */
+    public synchronized void onProbeResult(boolean reachable, long now) {
+        if (state != State.OPEN) {
+            return;
+        }
+        if (reachable) {
+            state = State.HALF_OPEN;
+            requiresProbe = false;
+            probeInFlight = false;
+            logger.info("探测可达 client={} state={}", clientName, State.HALF_OPEN);
+        } else {
+            currentCooldownMillis = Math.min(maxCooldownMillis, currentCooldownMillis * 2);
+            openUntil = now + currentCooldownMillis;
+        }
+    }
+
+    /**
+     * 最近一次熔断将要结束的时间
+     */
+    public synchronized long getOpenUntil() {
+        return openUntil;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 延迟的指数加权移动平均（毫秒），尚无样本时返回-1
+     */
+    public synchronized double getEwmaLatencyMillis() {
+        return ewmaLatencyMillis;
+    }
+
+    /**
+     * 错误率的指数加权移动平均（0~1）
+     */
+    public synchronized double getEwmaErrorRate() {
+        return ewmaErrorRate;
+    }
+
+    /**
+     * 健康评分（越小越健康）：平均延迟按错误率放大，熔断中的客户端评分为无穷大
+     */
+    public synchronized double score() {
+        if (state == State.OPEN) {
+            return Double.MAX_VALUE;
+        }
+        double latency = ewmaLatencyMillis < 0 ? 0 : ewmaLatencyMillis;
+        return latency * (1 + 4 * ewmaErrorRate);
+    }
+
+    private void updateLatency(long latencyMillis) {
+        if (ewmaLatencyMillis < 0) {
+            ewmaLatencyMillis = latencyMillis;
+        } else {
+            ewmaLatencyMillis = ewmaLatencyMillis * (1 - LATENCY_ALPHA) + latencyMillis * LATENCY_ALPHA;
+        }
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("client", clientName);
+        stats.put("state", state.name());
+        stats.put("ewmaLatencyMs", Math.round(Math.max(0, ewmaLatencyMillis)));
+        stats.put("ewmaErrorRate", Math.round(ewmaErrorRate * 1000) / 1000.0);
+        stats.put("successes", successes);
+        stats.put("failures", failures);
+        stats.put("skipped", skipped);
+        stats.put("trips", trips);
+        if (lastFailureReason != null) {
+            stats.put("lastFailureReason", lastFailureReason);
+        }
+        if (state == State.OPEN) {
+            stats.put("openRemainingMs", Math.max(0, openUntil - System.currentTimeMillis()));
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,83 @@
+package aitool.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并发限制执行器
+ * 包装一个不限线程数的执行器（弹性线程池或虚拟线程），同时运行的任务不超过上限，超出的任务在内存中排队，
+ * 提交任务本身从不阻塞（HttpServer的分发线程不会被卡住）
+ */
+public class ConcurrencyLimitedExecutor implements Executor {
+
+    private final Executor delegate;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    public ConcurrencyLimitedExecutor(Executor delegate, int maxConcurrency) {
+        this.delegate = delegate;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.permits = new Semaphore(this.maxConcurrency);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        pending.add(command);
+        pendingCount.incrementAndGet();
+        drain();
+    }
+
+    /**
+     * 有空闲名额时取出排队任务交给底层执行器
+     * 每次提交和每个任务结束后都会调用，保证排队任务不会被遗漏
+     */
+    private void drain() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            Runnable next = pending.poll();
+            if (next == null) {
+                permits.release();
+                continue;
+            }
+            pendingCount.decrementAndGet();
+            try {
+                delegate.execute(() -> {
+                    try {
+                        next.run();
+                    } finally {
+                        permits.release();
+                        drain();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 等待执行的任务数
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrency", maxConcurrency);
+        stats.put("running", maxConcurrency - permits.availablePermits());
+        stats.put("pending", pendingCount.get());
+        return stats;
+    }
+}
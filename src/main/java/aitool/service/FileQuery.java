@@ -0,0 +1,149 @@
+package aitool.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 文件列表查询条件（/api/files）
+ * sort：time（修改时间，默认）/ size / name；order：desc（默认）/ asc；
+ * prefix：文件名前缀，keyword：文件名包含的关键词（均不区分大小写）；
+ * cursor：上一页返回的 nextCursor（键集分页，翻页期间有文件新增或删除也不会重复或遗漏）；limit：每页条数
+ * 参数无效时抛出 IllegalArgumentException
+ */
+public final class FileQuery {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    /**
+     * 排序字段
+     */
+    public enum Sort {
+        TIME, SIZE, NAME
+    }
+
+    private final Sort sort;
+    private final boolean descending;
+    private final String prefix;
+    private final String keyword;
+    private final int limit;
+    // 游标：上一页最后一个文件的排序键和文件名
+    private final long cursorKey;
+    private final String cursorName;
+
+    public FileQuery(String sort, String order, String prefix, String keyword, String cursor, String limit) {
+        this.sort = parseSort(sort);
+        this.descending = parseDescending(order);
+        this.prefix = emptyToNull(prefix);
+        this.keyword = emptyToNull(keyword);
+        this.limit = parseLimit(limit);
+
+        if (cursor == null || cursor.isEmpty()) {
+            this.cursorKey = 0;
+            this.cursorName = null;
+        } else {
+            String decoded;
+            try {
+                decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("无效的cursor");
+            }
+            String[] parts = decoded.split("\n", 3);
+            if (parts.length != 3 || !parts[0].equals(this.sort.name())) {
+                throw new IllegalArgumentException("cursor与排序方式不匹配");
+            }
+            try {
+                this.cursorKey = Long.parseLong(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的cursor");
+            }
+            this.cursorName = parts[2];
+        }
+    }
+
+    private static Sort parseSort(String value) {
+        if (value == null || value.isEmpty()) {
+            return Sort.TIME;
+        }
+        try {
+            return Sort.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("sort只能是time、size或name: " + value);
+        }
+    }
+
+    private static boolean parseDescending(String value) {
+        if (value == null || value.isEmpty() || value.equalsIgnoreCase("desc")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("asc")) {
+            return false;
+        }
+        throw new IllegalArgumentException("order只能是asc或desc: " + value);
+    }
+
+    private static int parseLimit(String value) {
+        if (value == null || value.isEmpty()) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            int limit = Integer.parseInt(value.trim());
+            if (limit > 0) {
+                return Math.min(limit, MAX_LIMIT);
+            }
+        } catch (NumberFormatException e) {
+            // 按无效参数处理
+        }
+        throw new IllegalArgumentException("limit必须是正整数: " + value);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim().toLowerCase();
+    }
+
+    /**
+     * 生成指向指定文件之后的游标
+     */
+    static String cursor(Sort sort, long key, String name) {
+        String value = sort.name() + "\n" + key + "\n" + name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * 小写的文件名前缀，未指定时为null
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * 小写的关键词，未指定时为null
+     */
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    boolean hasCursor() {
+        return cursorName != null;
+    }
+
+    long getCursorKey() {
+        return cursorKey;
+    }
+
+    String getCursorName() {
+        return cursorName;
+    }
+}
@@ -13,6 +13,19 @@ public class FilenameGenerator {
      * 根据用户需求生成文件名
      */
     public static String generateFilename(String userRequest) {
+        String name = generateBaseName(userRequest);
+        
+        // 添加时间戳确保唯一性
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
+        String timestampStr = sdf.format(new Date());
+        
+        return name + "_" + timestampStr + ".html";
+    }
+    
+    /**
+     * 根据用户需求生成文件名主体（最多3个关键词，不含时间戳和扩展名）
+     */
+    public static String generateBaseName(String userRequest) {
         // 提取关键词作为文件名
         Pattern pattern = Pattern.compile("[\\u4e00-\\u9fa5]+|\\w+");
         Matcher matcher = pattern.matcher(userRequest);
@@ -36,11 +49,6 @@ public class FilenameGenerator {
         if (name.length() > 30) {
             name = name.substring(0, 30);
         }
-        
-        // 添加时间戳确保唯一性
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
-        String timestampStr = sdf.format(new Date());
-        
-        return name + "_" + timestampStr + ".html";
+        return name;
     }
 }
@@ -0,0 +1,227 @@
+package aitool.service;
+
+import aitool.config.Config;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步生成任务队列
+ * 提交后立即返回任务ID，由固定数量的工作线程执行生成并保存文件，请求线程不再被AI调用长时间占用
+ * 工作线程数（GENERATION_WORKERS）和排队上限（GENERATION_QUEUE_CAPACITY）可配置，队列满时拒绝新任务
+ */
+public class GenerationJobQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobQueue.class);
+
+    /**
+     * 任务状态
+     */
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    /**
+     * 生成任务
+     */
+    public static class Job {
+        private final String id;
+        private final String request;
+        private final long createdAt;
+        private volatile Status status = Status.QUEUED;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile String filename;
+        private volatile String filepath;
+        private volatile String htmlContent;
+        private volatile String error;
+
+        Job(String id, String request) {
+            this.id = id;
+            this.request = request;
+            this.createdAt = System.currentTimeMillis();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        boolean isFinished() {
+            return status == Status.SUCCEEDED || status == Status.FAILED;
+        }
+
+        /**
+         * 转换为API响应
+         */
+        public JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("success", status != Status.FAILED);
+            json.addProperty("jobId", id);
+            json.addProperty("status", status.name().toLowerCase());
+            json.addProperty("request", request);
+            json.addProperty("createdAt", createdAt);
+            if (startedAt > 0) {
+                json.addProperty("startedAt", startedAt);
+            }
+            if (finishedAt > 0) {
+                json.addProperty("finishedAt", finishedAt);
+            }
+            if (status == Status.SUCCEEDED) {
+                json.addProperty("filename", filename);
+                json.addProperty("filepath", filepath);
+                json.addProperty("htmlContent", htmlContent);
+            } else if (status == Status.FAILED) {
+                json.addProperty("error", error);
+            }
+            return json;
+        }
+    }
+
+    private final HtmlGenerator generator;
+    private final File outputDir;
+    private final ThreadPoolExecutor executor;
+    private final long retentionMillis;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * 创建任务队列
+     * @param generator HTML生成器
+     * @param outputDir 生成文件的保存目录
+     */
+    public GenerationJobQueue(HtmlGenerator generator, File outputDir) {
+        this.generator = generator;
+        this.outputDir = outputDir;
+
+        int workers = Math.max(1, Config.getInt("GENERATION_WORKERS", 4));
+        int capacity = Math.max(1, Config.getInt("GENERATION_QUEUE_CAPACITY", 100));
+        this.retentionMillis = Math.max(0, Config.getLong("GENERATION_JOB_RETENTION_SECONDS", 600)) * 1000L;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(capacity),
+            r -> {
+                Thread thread = new Thread(r, "generation-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        Metrics.bindQueue("generation_jobs", executor, e -> e.getQueue().size());
+
+        System.out.println("✓ 异步生成任务队列已初始化，工作线程: " + workers + "，排队上限: " + capacity);
+    }
+
+    /**
+     * 提交生成任务
+     * @return 已排队的任务
+     * @throws RejectedExecutionException 队列已满时抛出
+     */
+    public Job submit(String userRequest) {
+        removeExpiredJobs();
+
+        Job job = new Job(UUID.randomUUID().toString().replace("-", ""), userRequest);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(LogContext.wrap(() -> run(job)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("生成任务队列已满，请稍后再试", e);
+        }
+        submitted.incrementAndGet();
+        return job;
+    }
+
+    private void run(Job job) {
+        job.startedAt = System.currentTimeMillis();
+        job.status = Status.RUNNING;
+        try {
+            String htmlContent = generator.generateTool(job.request);
+            if (htmlContent == null || htmlContent.trim().isEmpty()) {
+                throw new Exception("生成的HTML内容为空");
+            }
+            File filepath = generator.saveToOutput(outputDir, job.request, htmlContent);
+            job.filename = filepath.getName();
+            job.filepath = filepath.getAbsolutePath();
+            job.htmlContent = htmlContent;
+            // 先记录完成时间再更新状态，避免清理线程看到已完成但没有完成时间的任务
+            job.finishedAt = System.currentTimeMillis();
+            job.status = Status.SUCCEEDED;
+            succeeded.incrementAndGet();
+        } catch (Exception e) {
+            logger.warn("生成任务失败 jobId={} latencyMs={} error={}", job.id,
+                System.currentTimeMillis() - job.startedAt, e.getMessage());
+            job.error = "生成失败: " + e.getMessage();
+            job.finishedAt = System.currentTimeMillis();
+            job.status = Status.FAILED;
+            failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * 查询任务
+     * @return 任务，不存在或已过期时返回null
+     */
+    public Job getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 清理超过保留时间的已完成任务
+     */
+    private void removeExpiredJobs() {
+        long now = System.currentTimeMillis();
+        Iterator<Job> it = jobs.values().iterator();
+        while (it.hasNext()) {
+            Job job = it.next();
+            if (job.isFinished() && now - job.finishedAt > retentionMillis) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 获取队列统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        stats.put("submitted", submitted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("succeeded", succeeded.get());
+        stats.put("failed", failed.get());
+        stats.put("retainedJobs", jobs.size());
+        return stats;
+    }
+
+    /**
+     * 停止接收新任务
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
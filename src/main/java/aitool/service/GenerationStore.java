@@ -0,0 +1,372 @@
+package aitool.service;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按内容寻址的生成结果存储
+ * 以“规范化需求 + 模型 + 系统提示词”的哈希为键，精确匹配查找为O(1)；
+ * HTML文件仍保存在输出目录中（文件名为 关键词_内容哈希.html），内容相同的生成结果只保存一份文件；
+ * 每条记录的元数据（需求、模型、耗时、大小、创建时间）追加写入 .store/index.jsonl，启动时加载；
+ * 写入文件时同时写入 .gz 压缩副本（见PrecompressedFiles）
+ */
+public class GenerationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationStore.class);
+
+    private static final String STORE_DIR = ".store";
+    private static final String INDEX_FILE = "index.jsonl";
+    private static final int FILENAME_HASH_LENGTH = 12;
+
+    /**
+     * 存储记录
+     */
+    public static final class Entry {
+        private final String key;
+        private final String request;
+        private final String model;
+        private final String filename;
+        private final String contentHash;
+        private final long size;
+        private final long latencyMs;
+        private final long createdAt;
+
+        Entry(String key, String request, String model, String filename, String contentHash,
+              long size, long latencyMs, long createdAt) {
+            this.key = key;
+            this.request = request;
+            this.model = model;
+            this.filename = filename;
+            this.contentHash = contentHash;
+            this.size = size;
+            this.latencyMs = latencyMs;
+            this.createdAt = createdAt;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getRequest() {
+            return request;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLatencyMs() {
+            return latencyMs;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("key", key);
+            json.addProperty("request", request);
+            json.addProperty("model", model);
+            json.addProperty("file", filename);
+            json.addProperty("contentHash", contentHash);
+            json.addProperty("size", size);
+            json.addProperty("latencyMs", latencyMs);
+            json.addProperty("createdAt", createdAt);
+            return json;
+        }
+
+        static Entry fromJson(JsonObject json) {
+            return new Entry(
+                json.get("key").getAsString(),
+                json.has("request") ? json.get("request").getAsString() : "",
+                json.has("model") ? json.get("model").getAsString() : "",
+                json.get("file").getAsString(),
+                json.get("contentHash").getAsString(),
+                json.has("size") ? json.get("size").getAsLong() : 0,
+                json.has("latencyMs") ? json.get("latencyMs").getAsLong() : -1,
+                json.has("createdAt") ? json.get("createdAt").getAsLong() : 0);
+        }
+    }
+
+    private final File dir;
+    private final Path indexPath;
+    private final Map<String, Entry> byKey = new ConcurrentHashMap<>();
+    // 内容哈希 -> 文件名，用于相同内容去重
+    private final Map<String, String> fileByContentHash = new ConcurrentHashMap<>();
+    // 文件名 -> 最早生成该文件的记录，用于在文件列表中显示来源需求
+    private final Map<String, Entry> firstByFilename = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong dedupedWrites = new AtomicLong();
+
+    /**
+     * 打开（或创建）指定目录的存储，并加载已有记录
+     */
+    public GenerationStore(File dir) {
+        this.dir = dir;
+        this.indexPath = new File(new File(dir, STORE_DIR), INDEX_FILE).toPath();
+        load();
+    }
+
+    /**
+     * 计算存储键
+     */
+    public static String key(String normalizedRequest, String model, String systemPrompt) {
+        String material = normalizedRequest + "\n" + (model != null ? model : "") + "\n" + (systemPrompt != null ? systemPrompt : "");
+        return sha256(material.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 计算内容哈希
+     */
+    public static String contentHash(byte[] content) {
+        return sha256(content);
+    }
+
+    /**
+     * 计算文件内容哈希（与contentHash(byte[])结果相同），通过固定大小的缓冲区读取，不把整个文件读入内存
+     */
+    public static String contentHash(Path file) throws IOException {
+        MessageDigest digest = sha256Digest();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * 按键精确查找（O(1)），对应文件已被删除时移除记录并返回null
+     */
+    public Entry lookup(String key) {
+        Entry entry = byKey.get(key);
+        if (entry != null && !fileOf(entry).isFile()) {
+            byKey.remove(key, entry);
+            fileByContentHash.remove(entry.contentHash, entry.filename);
+            firstByFilename.remove(entry.filename, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * 保存生成结果；已有相同内容的文件时复用该文件，只追加元数据记录
+     * @param latencyMs 生成耗时（毫秒），未知时传-1
+     */
+    public synchronized Entry put(String key, String request, String model, byte[] content, long latencyMs) throws IOException {
+        String hash = contentHash(content);
+
+        String filename = fileByContentHash.get(hash);
+        if (filename != null && new File(dir, filename).isFile()) {
+            dedupedWrites.incrementAndGet();
+        } else {
+            filename = FilenameGenerator.generateBaseName(request) + "_" + hash.substring(0, FILENAME_HASH_LENGTH) + ".html";
+            File file = new File(dir, filename);
+            writeAtomically(file.toPath(), content);
+            try {
+                // 同时写入gzip副本，下载时直接发送，不再每次压缩
+                PrecompressedFiles.writeGzip(file, content);
+            } catch (IOException e) {
+                logger.warn("写入压缩副本失败 file={} error={}", file.getAbsolutePath(), e.getMessage());
+            }
+            fileByContentHash.put(hash, filename);
+            writes.incrementAndGet();
+        }
+
+        Entry entry = new Entry(key, request, model, filename, hash, content.length, latencyMs, System.currentTimeMillis());
+        byKey.put(key, entry);
+        firstByFilename.putIfAbsent(filename, entry);
+        appendIndex(entry);
+        return entry;
+    }
+
+    /**
+     * 全部有效记录
+     */
+    public Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(byKey.values());
+    }
+
+    /**
+     * 生成该文件的需求（多条需求共用同一文件时取最早的一条），没有生成记录时返回null
+     */
+    public String requestOf(String filename) {
+        Entry entry = firstByFilename.get(filename);
+        return entry != null ? entry.request : null;
+    }
+
+    /**
+     * 记录对应的文件
+     */
+    public File fileOf(Entry entry) {
+        return new File(dir, entry.filename);
+    }
+
+    /**
+     * 存储所在目录
+     */
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * 先写临时文件再原子替换，避免读取方看到写了一半的文件
+     */
+    private void writeAtomically(Path target, byte[] content) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling("." + target.getFileName() + ".tmp");
+        Files.write(temp, content);
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void appendIndex(Entry entry) throws IOException {
+        Files.createDirectories(indexPath.getParent());
+        String line = entry.toJson().toString() + "\n";
+        Files.write(indexPath, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 加载元数据记录；同一个键以最后一条为准，文件已不存在的记录丢弃，有丢弃时压缩重写索引文件
+     */
+    private void load() {
+        if (!Files.isRegularFile(indexPath)) {
+            return;
+        }
+        int lines = 0;
+        try {
+            for (String line : Files.readAllLines(indexPath, StandardCharsets.UTF_8)) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                lines++;
+                try {
+                    Entry entry = Entry.fromJson(JsonParser.parseString(line).getAsJsonObject());
+                    byKey.put(entry.key, entry);
+                } catch (RuntimeException e) {
+                    // 跳过损坏的记录（如进程异常退出时写了一半的行）
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("读取生成记录失败 file={} error={}", indexPath, e.getMessage());
+            return;
+        }
+
+        byKey.values().removeIf(entry -> !fileOf(entry).isFile());
+        for (Entry entry : byKey.values()) {
+            fileByContentHash.put(entry.contentHash, entry.filename);
+            firstByFilename.merge(entry.filename, entry, (a, b) -> a.createdAt <= b.createdAt ? a : b);
+        }
+
+        if (lines > byKey.size()) {
+            compact();
+        }
+        System.out.println("✓ 已加载生成记录: " + byKey.size() + " 条");
+    }
+
+    /**
+     * 只保留当前有效的记录重写索引文件
+     */
+    private synchronized void compact() {
+        List<String> lines = new ArrayList<>();
+        for (Entry entry : byKey.values()) {
+            lines.add(entry.toJson().toString());
+        }
+        try {
+            Path temp = indexPath.resolveSibling(INDEX_FILE + ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("压缩生成记录失败 file={} error={}", indexPath, e.getMessage());
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        return hex(sha256Digest().digest(data));
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private static String hex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * 记录数
+     */
+    public int size() {
+        return byKey.size();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", byKey.size());
+        stats.put("files", fileByContentHash.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("writes", writes.get());
+        stats.put("dedupedWrites", dedupedWrites.get());
+        return stats;
+    }
+}
@@ -0,0 +1,247 @@
+package aitool.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存近似最近邻索引（HNSW：分层可导航小世界图）
+ * 向量需已归一化，相似度为点积（余弦相似度）；每个节点随机分配层数，高层稀疏用于快速定位，
+ * 第0层稠密用于精确搜索，查询复杂度约为O(log n)。只支持插入，删除由调用方标记后在结果中过滤，删除较多时由调用方重建
+ */
+public class HnswIndex {
+
+    /**
+     * 查询结果
+     */
+    public static final class Result {
+        private final int id;
+        private final float similarity;
+
+        Result(int id, float similarity) {
+            this.id = id;
+            this.similarity = similarity;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public float getSimilarity() {
+            return similarity;
+        }
+    }
+
+    private static final class Node {
+        final float[] vector;
+        final List<List<Integer>> neighbors;
+
+        Node(float[] vector, int level) {
+            this.vector = vector;
+            this.neighbors = new ArrayList<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                neighbors.add(new ArrayList<>());
+            }
+        }
+    }
+
+    private final int m;
+    private final int maxNeighborsLayer0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final List<Node> nodes = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex() {
+        this(16, 100, 50);
+    }
+
+    /**
+     * @param m 每个节点在非0层的最大邻居数（第0层为2m）
+     * @param efConstruction 插入时的候选集大小
+     * @param efSearch 查询时的候选集大小
+     */
+    public HnswIndex(int m, int efConstruction, int efSearch) {
+        this.m = Math.max(2, m);
+        this.maxNeighborsLayer0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.efSearch = Math.max(1, efSearch);
+        this.levelMultiplier = 1 / Math.log(this.m);
+    }
+
+    /**
+     * 插入向量
+     * @return 向量编号（从0开始连续分配）
+     */
+    public int add(float[] vector) {
+        lock.writeLock().lock();
+        try {
+            int id = nodes.size();
+            int level = (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            Node node = new Node(vector, level);
+            nodes.add(node);
+
+            if (entryPoint < 0) {
+                entryPoint = id;
+                maxLevel = level;
+                return id;
+            }
+
+            int current = entryPoint;
+            for (int layer = maxLevel; layer > level; layer--) {
+                current = greedyClosest(vector, current, layer);
+            }
+            for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+                List<Result> candidates = searchLayer(vector, current, efConstruction, layer);
+                int maxNeighbors = layer == 0 ? maxNeighborsLayer0 : m;
+                List<Integer> selected = node.neighbors.get(layer);
+                for (int i = 0; i < candidates.size() && selected.size() < m; i++) {
+                    selected.add(candidates.get(i).id);
+                }
+                for (int neighbor : selected) {
+                    List<Integer> links = nodes.get(neighbor).neighbors.get(layer);
+                    links.add(id);
+                    if (links.size() > maxNeighbors) {
+                        prune(neighbor, links, maxNeighbors);
+                    }
+                }
+                current = candidates.get(0).id;
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = id;
+            }
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询最相似的k个向量（按相似度从高到低）
+     */
+    public List<Result> search(float[] query, int k) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return new ArrayList<>();
+            }
+            int current = entryPoint;
+            for (int layer = maxLevel; layer > 0; layer--) {
+                current = greedyClosest(query, current, layer);
+            }
+            List<Result> results = searchLayer(query, current, Math.max(efSearch, k), 0);
+            return results.size() > k ? new ArrayList<>(results.subList(0, k)) : results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已插入的向量数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取已插入的向量（用于重建索引）
+     */
+    float[] vector(int id) {
+        lock.readLock().lock();
+        try {
+            return nodes.get(id).vector;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 在高层贪心移动到离查询最近的节点
+     */
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float best = TextEmbedder.similarity(query, nodes.get(current).vector);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : nodes.get(current).neighbors.get(layer)) {
+                float similarity = TextEmbedder.similarity(query, nodes.get(neighbor).vector);
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在指定层做束搜索，返回最多ef个结果（按相似度从高到低）
+     */
+    private List<Result> searchLayer(float[] query, int start, int ef, int layer) {
+        Set<Integer> visited = new HashSet<>();
+        visited.add(start);
+        Result first = new Result(start, TextEmbedder.similarity(query, nodes.get(start).vector));
+
+        // 待扩展的候选（相似度高的优先）和当前结果集（相似度低的在堆顶，便于淘汰）
+        PriorityQueue<Result> candidates = new PriorityQueue<>(Comparator.comparingDouble((Result r) -> r.similarity).reversed());
+        PriorityQueue<Result> results = new PriorityQueue<>(Comparator.comparingDouble((Result r) -> r.similarity));
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Result candidate = candidates.poll();
+            if (results.size() >= ef && candidate.similarity < results.peek().similarity) {
+                break;
+            }
+            for (int neighbor : nodes.get(candidate.id).neighbors.get(layer)) {
+                if (!visited.add(neighbor)) {
+                    continue;
+                }
+                float similarity = TextEmbedder.similarity(query, nodes.get(neighbor).vector);
+                if (results.size() < ef || similarity > results.peek().similarity) {
+                    Result result = new Result(neighbor, similarity);
+                    candidates.add(result);
+                    results.add(result);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Result> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble((Result r) -> r.similarity).reversed());
+        return sorted;
+    }
+
+    /**
+     * 邻居数超过上限时只保留最相似的邻居
+     */
+    private void prune(int id, List<Integer> links, int maxNeighbors) {
+        float[] vector = nodes.get(id).vector;
+        links.sort(Comparator.comparingDouble((Integer other) -> TextEmbedder.similarity(vector, nodes.get(other).vector)).reversed());
+        while (links.size() > maxNeighbors) {
+            links.remove(links.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package aitool.service;
+
+import aitool.config.Config;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 生成HTML的内存缓存
+ * 按文件名和规范化后的需求缓存HTML内容（UTF-8字节），LRU淘汰，总字节数不超过配置上限（HTML_CACHE_MAX_BYTES）
+ */
+public class HtmlContentCache {
+
+    private static final String FILE_PREFIX = "file:";
+    private static final String REQUEST_PREFIX = "req:";
+
+    private static HtmlContentCache instance;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 来源文件名 -> 引用该文件内容的缓存键，文件变化时一并失效
+    private final Map<String, Set<String>> keysBySource = new LinkedHashMap<>();
+    private long currentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * 缓存条目
+     */
+    private static final class Entry {
+        final byte[] content;
+        final String sourceFile;
+
+        Entry(byte[] content, String sourceFile) {
+            this.content = content;
+            this.sourceFile = sourceFile;
+        }
+    }
+
+    public HtmlContentCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * 获取共享缓存实例
+     */
+    public static synchronized HtmlContentCache getInstance() {
+        if (instance == null) {
+            instance = new HtmlContentCache(Config.getLong("HTML_CACHE_MAX_BYTES", 64L * 1024 * 1024));
+        }
+        return instance;
+    }
+
+    /**
+     * 按文件名获取缓存内容
+     */
+    public byte[] getByFilename(String filename) {
+        return get(FILE_PREFIX + filename);
+    }
+
+    /**
+     * 按文件名缓存内容
+     */
+    public void putByFilename(String filename, byte[] content) {
+        put(FILE_PREFIX + filename, content, filename);
+    }
+
+    /**
+     * 按规范化需求获取缓存内容
+     */
+    public byte[] getByRequest(String normalizedRequest) {
+        return get(REQUEST_PREFIX + normalizedRequest);
+    }
+
+    /**
+     * 按规范化需求缓存内容
+     * @param sourceFile 内容所在的文件名（可为null），该文件变化时缓存随之失效
+     */
+    public void putByRequest(String normalizedRequest, byte[] content, String sourceFile) {
+        put(REQUEST_PREFIX + normalizedRequest, content, sourceFile);
+    }
+
+    private synchronized byte[] get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.content;
+    }
+
+    private synchronized void put(String key, byte[] content, String sourceFile) {
+        if (content == null || content.length > maxBytes) {
+            // 超过整个缓存容量的内容不缓存
+            return;
+        }
+        removeLocked(key);
+
+        entries.put(key, new Entry(content, sourceFile));
+        currentBytes += content.length;
+        if (sourceFile != null) {
+            keysBySource.computeIfAbsent(sourceFile, k -> new HashSet<>()).add(key);
+        }
+
+        // 按LRU顺序淘汰，直到总字节数回到上限以内
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            it.remove();
+            currentBytes -= eldest.getValue().content.length;
+            unlinkSource(eldest.getKey(), eldest.getValue());
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 文件新增、修改或删除时，使该文件相关的缓存失效
+     */
+    public synchronized void invalidateFile(String filename) {
+        removeLocked(FILE_PREFIX + filename);
+        Set<String> keys = keysBySource.remove(filename);
+        if (keys != null) {
+            for (String key : keys) {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    currentBytes -= entry.content.length;
+                }
+            }
+        }
+    }
+
+    private void removeLocked(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            currentBytes -= old.content.length;
+            unlinkSource(key, old);
+        }
+    }
+
+    private void unlinkSource(String key, Entry entry) {
+        if (entry.sourceFile == null) {
+            return;
+        }
+        Set<String> keys = keysBySource.get(entry.sourceFile);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysBySource.remove(entry.sourceFile);
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        entries.clear();
+        keysBySource.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", currentBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+}
@@ -4,25 +4,44 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import aitool.config.Config;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * HTML工具生成器核心类
  */
 public class HtmlGenerator {
     
+    private static final Logger logger = LoggerFactory.getLogger(HtmlGenerator.class);
+    
     private final Map<String, ToolGenerator> tools;
     private AIClient aiClient;  // 保留用于向后兼容
     private AIFailoverManager failoverManager;  // 容灾管理器
     private boolean useAi;
     private File outputDir;
+    private final OutputFileIndex fileIndex;  // output目录文件名倒排索引
+    private final HtmlContentCache contentCache;  // 共享的HTML内容缓存
+    private final SingleFlight<String, String> aiCalls = new SingleFlight<>();  // 相同需求的AI调用合并
+    private final GenerationStore store;  // output目录的生成结果存储（按需求哈希精确查找）
+    private final Map<String, GenerationStore> storesByDir = new ConcurrentHashMap<>();
+    private final String modelId = Config.get("DOUBAO_ENDPOINT_ID", "");
+    private final SemanticCache semanticCache;  // 需求语义相似度缓存（未启用时为null）
+    private final ShortcutRouter shortcutRouter = ShortcutRouter.load();  // 简单需求到模板工具的路由
     
     private static HtmlGenerator instance;
     
     public HtmlGenerator() {
-        tools = new HashMap<>();
+        tools = new ConcurrentHashMap<>();
         tools.put("table", new TableGeneratorTool());
         tools.put("calculator", new CalculatorTool());
         tools.put("text_replace", new TextReplaceTool());
@@ -30,6 +49,12 @@ public class HtmlGenerator {
         tools.put("json_formatter", new JsonFormatterTool());
         tools.put("csv_processor", new CsvProcessorTool());
         
+        // 其他模板（含外部模板目录中的模板）按模板名称自动注册，模板目录变化时同步更新
+        for (String name : Templates.names()) {
+            tools.putIfAbsent(name, new TemplateTool(name));
+        }
+        Templates.setChangeListener(this::onTemplatesChanged);
+        
         // 初始化输出目录
         String projectRoot = System.getProperty("user.dir");
         this.outputDir = new File(projectRoot, "output");
@@ -37,6 +62,31 @@ public class HtmlGenerator {
             outputDir.mkdirs();
         }
         
+        // 加载生成结果存储
+        this.store = storeFor(outputDir);
+        
+        // 为已保存的需求建立语义索引
+        this.semanticCache = Config.getBool("SEMANTIC_CACHE_ENABLED", true)
+            ? createSemanticCache(Config.getDouble("SEMANTIC_CACHE_THRESHOLD", 0.8))
+            : null;
+        
+        // 构建输出目录文件索引，并监听目录变化保持索引最新（文件变化时同步失效内容缓存和语义索引）
+        this.contentCache = HtmlContentCache.getInstance();
+        this.fileIndex = new OutputFileIndex(outputDir);
+        this.fileIndex.setChangeListener(this::onOutputFileChanged);
+        this.fileIndex.rebuild();
+        this.fileIndex.startWatching();
+        // 旧版本保存的文件没有gzip副本，在后台补齐
+        PrecompressedFiles.backfillGzip(outputDir);
+        
+        // 各级缓存的命中率指标
+        Metrics.bindCache("content", contentCache, HtmlContentCache::getStats);
+        Metrics.bindCache("generation_store", store, GenerationStore::getStats);
+        Metrics.bindCache("shortcut", shortcutRouter, ShortcutRouter::getStats);
+        if (semanticCache != null) {
+            Metrics.bindCache("semantic", semanticCache, SemanticCache::getStats);
+        }
+        
         // 初始化AI客户端（使用容灾管理器）
         this.useAi = false;
         if (Config.checkAiConfig()) {
@@ -84,132 +134,350 @@ public class HtmlGenerator {
         }
     }
     
+    /**
+     * 模板新增时注册为同名工具，模板删除时注销对应的模板工具（内置工具不受影响）
+     */
+    private void onTemplatesChanged(Set<String> templateNames) {
+        for (String name : templateNames) {
+            if (Templates.contains(name)) {
+                if (tools.putIfAbsent(name, new TemplateTool(name)) == null) {
+                    System.out.println("✓ 已注册模板工具: " + name);
+                }
+            } else {
+                ToolGenerator tool = tools.get(name);
+                if (tool instanceof TemplateTool && tools.remove(name, tool)) {
+                    System.out.println("✓ 已注销模板工具: " + name);
+                }
+            }
+        }
+    }
+    
     /**
      * 根据用户需求生成HTML工具
      */
     public String generateTool(String userRequest) throws Exception {
-        // 步骤1: 检查output目录中是否已经存在对应的文件
-        String existingHtml = findExistingFile(userRequest);
+        // 步骤0~2: 缓存、已生成文件、简单示例模板
+        String normalizedRequest = normalizeRequest(userRequest);
+        String readyHtml = findReadyContent(userRequest, normalizedRequest);
+        if (readyHtml != null) {
+            return readyHtml;
+        }
+        
+        // 步骤3: 其他情况调用AI生成（使用容灾机制）
+        // 相同需求的并发请求合并为一次AI调用，所有调用方共享同一个结果或异常
+        if (useAi) {
+            return aiCalls.execute(normalizedRequest, () -> generateWithAi(userRequest, normalizedRequest, null));
+        } else {
+            // AI未启用或配置不可用
+            throw new Exception("AI功能未启用或配置不可用，无法生成模板。请检查AI配置或稍后再试。");
+        }
+    }
+    
+    /**
+     * 流式生成HTML工具，生成过程中每收到一段内容回调一次onDelta，返回完整内容
+     * 命中缓存、已生成文件或模板时一次性回调全部内容
+     */
+    public String generateToolStream(String userRequest, Consumer<String> onDelta) throws Exception {
+        String normalizedRequest = normalizeRequest(userRequest);
+        String readyHtml = findReadyContent(userRequest, normalizedRequest);
+        if (readyHtml != null) {
+            onDelta.accept(readyHtml);
+            return readyHtml;
+        }
+        
+        if (!useAi) {
+            throw new Exception("AI功能未启用或配置不可用，无法生成模板。请检查AI配置或稍后再试。");
+        }
+        
+        // 如果相同需求已有进行中的调用，则等待其结果并一次性输出
+        AtomicBoolean streamed = new AtomicBoolean(false);
+        String htmlContent = aiCalls.execute(normalizedRequest, () -> generateWithAi(userRequest, normalizedRequest, delta -> {
+            streamed.set(true);
+            onDelta.accept(delta);
+        }));
+        if (!streamed.get()) {
+            onDelta.accept(htmlContent);
+        }
+        return htmlContent;
+    }
+    
+    /**
+     * 查找无需调用AI即可返回的内容：内存缓存、已生成文件、简单示例模板
+     */
+    private String findReadyContent(String userRequest, String normalizedRequest) {
+        // 步骤0: 检查内存缓存中是否有相同需求的结果
+        Timer.Sample sample = Metrics.start();
+        byte[] cached = contentCache.getByRequest(normalizedRequest);
+        Metrics.stage(sample, Metrics.STAGE_CONTENT_CACHE, cached != null);
+        if (cached != null) {
+            logger.info("命中缓存 stage={}", Metrics.STAGE_CONTENT_CACHE);
+            return new String(cached, StandardCharsets.UTF_8);
+        }
+        
+        // 步骤1: 按需求哈希精确查找已保存的生成结果，找不到再按需求语义相似度（未启用时按文件名关键词）匹配
+        sample = Metrics.start();
+        String storedHtml = findStoredContent(normalizedRequest);
+        Metrics.stage(sample, Metrics.STAGE_STORED_RESULT, storedHtml != null);
+        if (storedHtml != null) {
+            logger.info("命中缓存 stage={}", Metrics.STAGE_STORED_RESULT);
+            return storedHtml;
+        }
+        sample = Metrics.start();
+        String existingHtml = semanticCache != null
+            ? findSimilarContent(userRequest, normalizedRequest)
+            : findExistingFile(userRequest);
+        Metrics.stage(sample, Metrics.STAGE_SIMILAR_FILE, existingHtml != null);
         if (existingHtml != null) {
-            System.out.println("✓ 找到已生成的文件，直接返回");
+            logger.info("命中缓存 stage={}", Metrics.STAGE_SIMILAR_FILE);
             return existingHtml;
         }
         
         // 步骤2: 检查是否是简单示例需求，如果是则直接返回对应模板
+        sample = Metrics.start();
         String simpleTemplate = getSimpleExampleTemplate(userRequest);
+        Metrics.stage(sample, Metrics.STAGE_TEMPLATE_SHORTCUT, simpleTemplate != null);
         if (simpleTemplate != null) {
-            System.out.println("✓ 检测到简单示例需求，直接返回模板");
+            logger.info("命中缓存 stage={}", Metrics.STAGE_TEMPLATE_SHORTCUT);
             return simpleTemplate;
         }
         
-        // 步骤3: 其他情况调用AI生成（使用容灾机制）
-        if (useAi) {
+        return null;
+    }
+    
+    /**
+     * 调用AI生成HTML工具，并验证生成结果
+     * @param onDelta 流式输出回调，为null时使用阻塞调用
+     */
+    private String generateWithAi(String userRequest, String normalizedRequest, Consumer<String> onDelta) throws Exception {
+        try {
+            logger.info("开始AI生成 stage={} stream={}", Metrics.STAGE_AI_GENERATE, onDelta != null);
+            long start = System.currentTimeMillis();
+            String htmlContent;
+            
+            // 优先使用容灾管理器（各客户端的调用耗时和失败原因由容灾管理器记录）
+            Timer.Sample sample = Metrics.start();
+            boolean generated = false;
             try {
-                System.out.println("🤖 正在使用AI分析需求并生成工具...");
-                String htmlContent;
-                
-                // 优先使用容灾管理器
                 if (failoverManager != null) {
-                    htmlContent = failoverManager.generateHtmlTool(userRequest, null);
+                    htmlContent = onDelta != null
+                        ? failoverManager.generateHtmlToolStream(userRequest, null, onDelta)
+                        : failoverManager.generateHtmlTool(userRequest, null);
                 } else if (aiClient != null) {
                     // 向后兼容：使用单个客户端
-                    htmlContent = aiClient.generateHtmlTool(userRequest, null);
+                    boolean success = false;
+                    try {
+                        htmlContent = onDelta != null
+                            ? aiClient.generateHtmlToolStream(userRequest, null, onDelta)
+                            : aiClient.generateHtmlTool(userRequest, null);
+                        success = true;
+                    } finally {
+                        Metrics.aiCall(aiClient.getClientName(), success, System.currentTimeMillis() - start);
+                    }
                 } else {
                     throw new Exception("AI客户端未初始化");
                 }
-                
-                // 验证生成的HTML是否有效
-                if (htmlContent != null && htmlContent.length() > 100) {
-                    if (htmlContent.contains("<!DOCTYPE") || htmlContent.contains("<html")) {
-                        System.out.println("✓ AI生成成功！");
-                        return htmlContent;
-                    } else {
-                        throw new Exception("AI生成的内容格式不正确，缺少必要的HTML标签");
+                generated = true;
+            } finally {
+                Metrics.stage(sample, Metrics.STAGE_AI_GENERATE, generated ? "success" : "failure");
+            }
+            
+            // 验证生成的HTML是否有效
+            sample = Metrics.start();
+            if (htmlContent != null && htmlContent.length() > 100) {
+                if (htmlContent.contains("<!DOCTYPE") || htmlContent.contains("<html")) {
+                    Metrics.stage(sample, Metrics.STAGE_HTML_VALIDATION, "valid");
+                    logger.info("AI生成成功 stage={} latencyMs={} size={}", Metrics.STAGE_AI_GENERATE,
+                        System.currentTimeMillis() - start, htmlContent.length());
+                    byte[] bytes = htmlContent.getBytes(StandardCharsets.UTF_8);
+                    String sourceFile = null;
+                    sample = Metrics.start();
+                    try {
+                        GenerationStore.Entry entry = store.put(storeKey(normalizedRequest), userRequest, modelId,
+                            bytes, System.currentTimeMillis() - start);
+                        sourceFile = entry.getFilename();
+                        if (semanticCache != null) {
+                            semanticCache.add(userRequest, sourceFile);
+                        }
+                        indexFile(store.fileOf(entry));
+                        Metrics.stage(sample, Metrics.STAGE_FILE_SAVE, "success");
+                    } catch (IOException e) {
+                        // 保存失败不影响本次返回结果
+                        Metrics.stage(sample, Metrics.STAGE_FILE_SAVE, "failure");
+                        logger.warn("保存生成结果失败 stage={} error={}", Metrics.STAGE_FILE_SAVE, e.getMessage());
                     }
+                    contentCache.putByRequest(normalizedRequest, bytes, sourceFile);
+                    return htmlContent;
                 } else {
-                    throw new Exception("AI生成的内容过短，可能生成失败");
+                    Metrics.stage(sample, Metrics.STAGE_HTML_VALIDATION, "invalid");
+                    throw new Exception("AI生成的内容格式不正确，缺少必要的HTML标签");
                 }
-            } catch (Exception e) {
-                System.out.println("⚠ AI生成失败: " + e.getMessage());
-                
-                // 打印详细的错误信息以便调试
-                if (e.getCause() != null) {
-                    System.out.println("   详细错误: " + e.getCause().getMessage());
-                }
-                
-                // 如果是超时错误，提供解决建议
-                String errorMsg = e.getMessage();
-                if (errorMsg != null && errorMsg.contains("超时")) {
-                    System.out.println("   建议: 可以尝试增加超时时间配置（在.env文件中设置AI_READ_TIMEOUT）");
-                } else if (errorMsg != null && (errorMsg.contains("认证") || errorMsg.contains("401"))) {
-                    System.out.println("   建议: 请检查.env文件中的AI密钥配置是否正确");
-                } else if (errorMsg != null && errorMsg.contains("连接")) {
-                    System.out.println("   建议: 请检查网络连接和API配置");
-                } else if (errorMsg != null && errorMsg.contains("所有AI服务调用均失败")) {
-                    System.out.println("   建议: 请检查至少一个AI服务的配置是否正确，或稍后再试");
+            } else {
+                Metrics.stage(sample, Metrics.STAGE_HTML_VALIDATION, "invalid");
+                throw new Exception("AI生成的内容过短，可能生成失败");
+            }
+        } catch (Exception e) {
+            // 如果是超时等常见错误，附带解决建议
+            String errorMsg = e.getMessage();
+            String hint = null;
+            if (errorMsg != null && errorMsg.contains("超时")) {
+                hint = "可以尝试增加超时时间配置（在.env文件中设置AI_READ_TIMEOUT）";
+            } else if (errorMsg != null && (errorMsg.contains("认证") || errorMsg.contains("401"))) {
+                hint = "请检查.env文件中的AI密钥配置是否正确";
+            } else if (errorMsg != null && errorMsg.contains("连接")) {
+                hint = "请检查网络连接和API配置";
+            } else if (errorMsg != null && errorMsg.contains("所有AI服务调用均失败")) {
+                hint = "请检查至少一个AI服务的配置是否正确，或稍后再试";
+            }
+            logger.warn("AI生成失败 stage={} error={} cause={} hint={}", Metrics.STAGE_AI_GENERATE, errorMsg,
+                e.getCause() != null ? e.getCause().getMessage() : null, hint);
+            
+            // AI失败时抛出异常，不再回退到模板模式
+            throw new Exception("AI生成失败，请稍后再试。错误信息: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 按需求哈希在生成结果存储中精确查找（优先从内存缓存读取文件内容）
+     */
+    private String findStoredContent(String normalizedRequest) {
+        GenerationStore.Entry entry = store.lookup(storeKey(normalizedRequest));
+        if (entry == null) {
+            return null;
+        }
+        try {
+            byte[] bytes = contentCache.getByFilename(entry.getFilename());
+            if (bytes == null) {
+                bytes = Files.readAllBytes(store.fileOf(entry).toPath());
+                contentCache.putByFilename(entry.getFilename(), bytes);
+            }
+            contentCache.putByRequest(normalizedRequest, bytes, entry.getFilename());
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("读取已保存的生成结果失败 file={}", store.fileOf(entry).getAbsolutePath());
+            return null;
+        }
+    }
+    
+    /**
+     * 生成结果存储键：规范化需求 + 模型 + 系统提示词
+     */
+    private String storeKey(String normalizedRequest) {
+        return GenerationStore.key(normalizedRequest, modelId, AIClient.DEFAULT_SYSTEM_PROMPT);
+    }
+    
+    /**
+     * 获取指定目录的生成结果存储（每个目录一个实例）
+     */
+    private GenerationStore storeFor(File dir) {
+        String path;
+        try {
+            path = dir.getCanonicalPath();
+        } catch (IOException e) {
+            path = dir.getAbsolutePath();
+        }
+        return storesByDir.computeIfAbsent(path, p -> new GenerationStore(new File(p)));
+    }
+    
+    /**
+     * 创建语义缓存：登记生成记录中的需求，以及没有生成记录的旧文件（以文件名关键词代替需求）
+     */
+    private SemanticCache createSemanticCache(double threshold) {
+        SemanticCache cache = new SemanticCache(threshold);
+        for (GenerationStore.Entry entry : store.entries()) {
+            cache.add(entry.getRequest(), entry.getFilename());
+        }
+        File[] files = outputDir.listFiles((d, name) -> name.toLowerCase().endsWith(".html"));
+        if (files != null) {
+            for (File file : files) {
+                if (!cache.containsFile(file.getName())) {
+                    cache.addFile(file.getName());
                 }
-                
-                // AI失败时抛出异常，不再回退到模板模式
-                throw new Exception("AI生成失败，请稍后再试。错误信息: " + e.getMessage());
+            }
+        }
+        System.out.println("✓ 语义缓存已启用（相似度阈值 " + threshold + "）");
+        return cache;
+    }
+    
+    /**
+     * output目录文件变化：失效内容缓存，删除的文件同时删除压缩副本和缓存的ETag，
+     * 并同步语义索引（删除的文件不再命中，外部新增的文件按文件名登记）
+     */
+    private void onOutputFileChanged(String filename) {
+        contentCache.invalidateFile(filename);
+        File file = new File(outputDir, filename);
+        if (!file.exists()) {
+            PrecompressedFiles.deleteSiblings(file);
+            HttpCaching.forgetFile(file);
+        } else {
+            // 文件被外部修改过时gzip副本已过期，在后台重新生成
+            PrecompressedFiles.refreshGzipAsync(file);
+        }
+        if (semanticCache == null) {
+            return;
+        }
+        if (file.isFile()) {
+            if (!semanticCache.containsFile(filename)) {
+                semanticCache.addFile(filename);
             }
         } else {
-            // AI未启用或配置不可用
-            throw new Exception("AI功能未启用或配置不可用，无法生成模板。请检查AI配置或稍后再试。");
+            semanticCache.removeFile(filename);
         }
     }
     
     /**
-     * 检查output目录中是否已存在对应的文件
-     * 通过匹配文件名中的关键词来判断
+     * 按需求语义相似度查找已生成的文件（优先从内存缓存读取文件内容）
      */
-    private String findExistingFile(String userRequest) {
-        if (!outputDir.exists() || !outputDir.isDirectory()) {
+    private String findSimilarContent(String userRequest, String normalizedRequest) {
+        SemanticCache.Match match = semanticCache.lookup(userRequest);
+        if (match == null) {
             return null;
         }
-        
+        File file = new File(outputDir, match.getFilename());
+        try {
+            byte[] bytes = contentCache.getByFilename(match.getFilename());
+            if (bytes == null) {
+                bytes = Files.readAllBytes(file.toPath());
+                contentCache.putByFilename(match.getFilename(), bytes);
+            }
+            contentCache.putByRequest(normalizedRequest, bytes, match.getFilename());
+            logger.info("语义匹配到已生成的需求 request={} similarity={}", match.getRequest(),
+                String.format("%.2f", match.getSimilarity()));
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("读取已存在文件失败 file={}", file.getAbsolutePath());
+            semanticCache.removeFile(match.getFilename());
+            return null;
+        }
+    }
+    
+    /**
+     * 检查output目录中是否已存在对应的文件
+     * 通过文件索引匹配文件名中的关键词来判断，不再逐次扫描目录
+     */
+    private String findExistingFile(String userRequest) {
         // 提取需求的关键词（用于匹配文件名）
         String[] keywords = extractKeywords(userRequest);
         if (keywords.length == 0) {
             return null;
         }
         
-        File[] files = outputDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".html"));
-        if (files == null) {
-            return null;
-        }
-        
-        // 遍历文件，查找匹配的文件
-        // 优先返回最近匹配的文件（按文件名排序，最新文件在后）
-        File bestMatch = null;
-        int bestMatchCount = 0;
+        // 优先返回匹配关键词最多的文件，数量相同时返回最新的文件
+        File bestMatch = fileIndex.findBestMatch(keywords);
         
-        for (File file : files) {
-            String filename = file.getName().toLowerCase();
-            
-            // 计算匹配的关键词数量
-            int matchCount = 0;
-            for (String keyword : keywords) {
-                if (filename.contains(keyword.toLowerCase())) {
-                    matchCount++;
-                }
-            }
-            
-            // 如果匹配的关键词数量超过一半，或者所有关键词都匹配，则认为是匹配的
-            if (matchCount > 0 && (matchCount >= keywords.length / 2 || matchCount == keywords.length)) {
-                if (matchCount > bestMatchCount || (matchCount == bestMatchCount && file.lastModified() > (bestMatch != null ? bestMatch.lastModified() : 0))) {
-                    bestMatch = file;
-                    bestMatchCount = matchCount;
-                }
-            }
-        }
-        
-        // 返回最佳匹配的文件内容
+        // 返回最佳匹配的文件内容（优先从内存缓存读取）
         if (bestMatch != null) {
             try {
-                byte[] bytes = Files.readAllBytes(bestMatch.toPath());
+                byte[] bytes = contentCache.getByFilename(bestMatch.getName());
+                if (bytes == null) {
+                    bytes = Files.readAllBytes(bestMatch.toPath());
+                    contentCache.putByFilename(bestMatch.getName(), bytes);
+                }
+                contentCache.putByRequest(normalizeRequest(userRequest), bytes, bestMatch.getName());
                 return new String(bytes, StandardCharsets.UTF_8);
             } catch (IOException e) {
-                System.err.println("读取已存在文件失败: " + bestMatch.getAbsolutePath());
+                logger.warn("读取已存在文件失败 file={}", bestMatch.getAbsolutePath());
+                // 文件可能已被删除，从索引中移除
+                fileIndex.remove(bestMatch.getName());
                 return null;
             }
         }
@@ -217,10 +485,115 @@ public class HtmlGenerator {
         return null;
     }
     
+    /**
+     * 分页列出output目录中的文件（从内存索引读取，不扫描目录）
+     * @return files（文件名、大小、创建时间、修改时间、来源需求）、hasMore、nextCursor（没有下一页时为null）、total（已索引的文件总数）
+     */
+    public Map<String, Object> listFiles(FileQuery query) {
+        OutputFileIndex.Page page = fileIndex.list(query);
+        List<Map<String, Object>> files = new ArrayList<>(page.files.size());
+        for (OutputFileIndex.IndexedFile entry : page.files) {
+            Map<String, Object> file = new LinkedHashMap<>();
+            file.put("filename", entry.name);
+            file.put("size", entry.length);
+            file.put("createdAt", entry.createdAt);
+            file.put("modifiedAt", entry.lastModified);
+            file.put("request", store.requestOf(entry.name));
+            files.add(file);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("files", files);
+        result.put("hasMore", page.nextCursor != null);
+        result.put("nextCursor", page.nextCursor);
+        result.put("total", fileIndex.size());
+        return result;
+    }
+    
+    /**
+     * 登记新保存的文件到索引（目录监听也会更新索引，主动登记可保证保存后立即可查）
+     */
+    public void indexFile(File file) {
+        fileIndex.add(file);
+    }
+    
+    /**
+     * 将生成的HTML保存到指定输出目录（UTF-8编码），并登记到文件索引
+     * 文件由生成结果存储管理（文件名为 关键词_内容哈希.html）：AI生成时已保存的结果直接返回对应文件，
+     * 内容相同的结果共用同一个文件
+     * @return 保存后的文件
+     */
+    public File saveToOutput(File dir, String userRequest, String htmlContent) throws IOException {
+        // 确保输出目录存在
+        if (!dir.exists()) {
+            boolean created = dir.mkdirs();
+            if (!created) {
+                throw new IOException("无法创建输出目录: " + dir.getAbsolutePath());
+            }
+        }
+        
+        GenerationStore target = storeFor(dir);
+        String key = storeKey(normalizeRequest(userRequest));
+        byte[] bytes = htmlContent.getBytes(StandardCharsets.UTF_8);
+        
+        GenerationStore.Entry entry = target.lookup(key);
+        boolean stored = entry != null && entry.getContentHash().equals(GenerationStore.contentHash(bytes));
+        if (!stored) {
+            entry = target.put(key, userRequest, modelId, bytes, -1);
+        }
+        File filepath = target.fileOf(entry);
+        if (target == store && semanticCache != null && !semanticCache.containsFile(entry.getFilename())) {
+            semanticCache.add(userRequest, entry.getFilename());
+        }
+        
+        // 验证文件是否真的被保存了
+        if (!filepath.exists() || filepath.length() == 0) {
+            throw new IOException("文件保存失败: " + filepath.getAbsolutePath());
+        }
+        
+        // 已保存过的结果在保存时已登记，再次登记会误判为文件变化而失效刚写入的内容缓存
+        if (!stored) {
+            indexFile(filepath);
+        }
+        logger.info("文件已保存 stage={} file={} size={}", Metrics.STAGE_FILE_SAVE, filepath.getAbsolutePath(), filepath.length());
+        return filepath;
+    }
+    
+    /**
+     * 规范化用户需求（去除首尾空白、合并连续空白、转小写），用作缓存键
+     */
+    public static String normalizeRequest(String request) {
+        if (request == null) {
+            return "";
+        }
+        return request.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+    
+    /**
+     * 获取运行统计信息（文件索引、内容缓存等）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("indexedFiles", fileIndex.size());
+        stats.put("generationStore", store.getStats());
+        if (semanticCache != null) {
+            stats.put("semanticCache", semanticCache.getStats());
+        }
+        stats.put("contentCache", contentCache.getStats());
+        stats.put("shortcuts", shortcutRouter.getStats());
+        stats.put("aiSingleFlight", aiCalls.getStats());
+        if (failoverManager != null) {
+            stats.put("aiLbPolicy", failoverManager.getLoadBalancePolicy());
+            stats.put("aiClients", failoverManager.getStats());
+            stats.put("aiLatency", failoverManager.getLatencyStats());
+            stats.put("httpPool", HttpClients.getStats());
+        }
+        return stats;
+    }
+    
     /**
      * 从用户需求中提取关键词（用于匹配文件名）
      */
-    private String[] extractKeywords(String request) {
+    static String[] extractKeywords(String request) {
         // 移除常见的描述性词汇
         String cleaned = request.replaceAll("生成一个|生成|一个|工具", "");
         cleaned = cleaned.trim();
@@ -242,64 +615,15 @@ public class HtmlGenerator {
     
     /**
      * 检查是否是简单示例需求，如果是则返回对应的模板
-     * 简单示例：与前端示例完全匹配的需求
+     * 简单示例：与快捷模板规则（shortcuts.json）完全匹配，或包含触发词且足够简短的需求
      */
     private String getSimpleExampleTemplate(String userRequest) {
-        String requestLower = userRequest.trim().toLowerCase();
-        
-        // 定义简单示例需求及其对应的模板
-        Map<String, String> simpleExamples = new HashMap<>();
-        simpleExamples.put("生成一个计算器工具", "calculator");
-        simpleExamples.put("生成一个表格生成器", "table");
-        simpleExamples.put("生成一个文本替换工具", "text_replace");
-        simpleExamples.put("生成一个json格式化工具", "json_formatter");
-        simpleExamples.put("生成一个数据转换工具", "data_converter");
-        // 添加一些变体
-        simpleExamples.put("计算器", "calculator");
-        simpleExamples.put("计算器工具", "calculator");
-        simpleExamples.put("表格", "table");
-        simpleExamples.put("表格生成器", "table");
-        simpleExamples.put("表格工具", "table");
-        simpleExamples.put("文本替换", "text_replace");
-        simpleExamples.put("文本替换工具", "text_replace");
-        simpleExamples.put("json格式化", "json_formatter");
-        simpleExamples.put("json格式化工具", "json_formatter");
-        simpleExamples.put("数据转换", "data_converter");
-        simpleExamples.put("数据转换工具", "data_converter");
-        
-        // 精确匹配
-        if (simpleExamples.containsKey(requestLower)) {
-            String templateName = simpleExamples.get(requestLower);
-            ToolGenerator toolGenerator = tools.get(templateName);
-            if (toolGenerator != null) {
-                return toolGenerator.generate(userRequest);
-            }
-        }
-        
-        // 部分匹配（检查是否包含关键词，但要确保需求足够简单）
-        // 只匹配明确的简单需求，避免误判
-        if (containsKeyword(requestLower, new String[]{"计算器", "calculator"}) && 
-            requestLower.length() < 20) { // 限制长度确保是简单需求
-            return tools.get("calculator").generate(userRequest);
-        }
-        if (containsKeyword(requestLower, new String[]{"表格生成器", "表格", "table"}) && 
-            requestLower.length() < 20) {
-            return tools.get("table").generate(userRequest);
-        }
-        if (containsKeyword(requestLower, new String[]{"文本替换", "replace"}) && 
-            requestLower.length() < 20) {
-            return tools.get("text_replace").generate(userRequest);
-        }
-        if (containsKeyword(requestLower, new String[]{"json格式化", "json格式", "json formatter"}) && 
-            requestLower.length() < 25) {
-            return tools.get("json_formatter").generate(userRequest);
-        }
-        if (containsKeyword(requestLower, new String[]{"数据转换", "data converter"}) && 
-            requestLower.length() < 20) {
-            return tools.get("data_converter").generate(userRequest);
+        String tool = shortcutRouter.route(userRequest.trim().toLowerCase(), tools::containsKey);
+        if (tool == null) {
+            return null;
         }
-        
-        return null;
+        ToolGenerator toolGenerator = tools.get(tool);
+        return toolGenerator != null ? toolGenerator.generate(userRequest) : null;
     }
     
     /**
@@ -375,8 +699,8 @@ public class HtmlGenerator {
      * 生成自定义工具（通用模板）
      */
     private String generateCustomTool(String request) {
-        return Templates.formatTemplate(
-            Templates.getTemplate("custom_tool"),
+        return Templates.render(
+            "custom_tool",
             "自定义工具",
             request,
             "请输入你的需求描述..."
@@ -397,6 +721,9 @@ public class HtmlGenerator {
      * 重新加载实例（用于配置更新后）
      */
     public static HtmlGenerator reloadInstance() {
+        if (instance != null) {
+            instance.fileIndex.close();
+        }
         instance = new HtmlGenerator();
         return instance;
     }
@@ -409,6 +736,22 @@ abstract class ToolGenerator {
     public abstract String generate(String request);
 }
 
+/**
+ * 按名称自动注册的模板工具（占位符使用需求内容填充）
+ */
+class TemplateTool extends ToolGenerator {
+    private final String templateName;
+    
+    TemplateTool(String templateName) {
+        this.templateName = templateName;
+    }
+    
+    @Override
+    public String generate(String request) {
+        return Templates.render(templateName, request, request, "请输入内容...");
+    }
+}
+
 /**
  * 表格生成工具
  */
@@ -0,0 +1,289 @@
+package aitool.service;
+
+import java.util.function.Consumer;
+
+/**
+ * 从AI返回内容中增量提取HTML
+ * 按片段依次输入，一次遍历完成：丢弃HTML之前的说明文字和markdown代码块标记，从 &lt;!DOCTYPE 或 &lt;html 开始输出，
+ * 遇到 &lt;/html&gt; 或代码块结束标记时停止（之后的说明文字丢弃），末尾空白不输出；
+ * 开始标记只在行首或代码块开始标记之后才算数，说明文字中间提到的标签（如“下面是 &lt;html&gt; 代码：”）会被跳过；
+ * 提取出的HTML直接追加到结果并回调给流式输出，不必等完整响应到达后再反复trim、indexOf、substring
+ * 整个响应中都没有这样的开始标记时，按原有规则返回代码块中的内容，或从全文中第一个开始标记处截取
+ */
+public class HtmlStreamExtractor implements Consumer<String> {
+
+    private enum State {
+        SEEK, BODY, DONE
+    }
+
+    private static final String FENCE = "```";
+    private static final String DOCTYPE = "<!doctype";
+    private static final String HTML_OPEN = "<html";
+    private static final String HTML_CLOSE = "</html>";
+
+    private final Consumer<String> onDelta;
+    // 已提取的HTML；一次性提取整段内容时为null，只记录结果在原文中的起止位置
+    private final StringBuilder html;
+    // 找到HTML开始标记之前收到的内容
+    private final StringBuilder skipped = new StringBuilder();
+    // 暂不输出的字符：末尾空白和可能属于代码块结束标记的反引号
+    private final StringBuilder held = new StringBuilder();
+
+    private State state = State.SEEK;
+    private boolean fenced;
+    private int seekFrom;
+    private int backticks;
+    // 当前连续反引号开始前暂存的字符数
+    private int heldBeforeFence;
+    private int closeMatched;
+
+    private final String source;
+    private int start = -1;
+    private int end;
+
+    /**
+     * @param onDelta 每提取出一段HTML时的回调，为null时只累积结果
+     */
+    public HtmlStreamExtractor(Consumer<String> onDelta) {
+        this.onDelta = onDelta;
+        this.html = new StringBuilder();
+        this.source = null;
+    }
+
+    private HtmlStreamExtractor(String source) {
+        this.onDelta = null;
+        this.html = null;
+        this.source = source;
+    }
+
+    /**
+     * 一次性提取整段内容中的HTML（结果是原文的一个子串，只复制一次）
+     */
+    public static String extract(String content) {
+        if (content == null || content.isEmpty()) {
+            return "";
+        }
+        HtmlStreamExtractor extractor = new HtmlStreamExtractor(content);
+        extractor.seek(content);
+        return extractor.finish();
+    }
+
+    /**
+     * 输入一个片段
+     */
+    @Override
+    public void accept(String chunk) {
+        if (chunk == null || chunk.isEmpty() || state == State.DONE) {
+            return;
+        }
+        if (state == State.BODY) {
+            body(chunk, 0, chunk.length());
+            return;
+        }
+        skipped.append(chunk);
+        seek(skipped);
+        if (state != State.SEEK) {
+            // 开始标记之前的说明文字不再需要
+            skipped.setLength(0);
+            skipped.trimToSize();
+        }
+    }
+
+    /**
+     * 查找HTML开始标记，找到后从标记处开始输出；途中遇到代码块开始标记时记下，之后以代码块结束标记作为结尾
+     * 代码块开始之前，只有位于行首的开始标记才算数
+     */
+    private void seek(CharSequence text) {
+        int length = text.length();
+        for (int i = seekFrom; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '<' && (matchesAt(text, i, DOCTYPE) || matchesAt(text, i, HTML_OPEN))
+                    && (fenced || atLineStart(text, i))) {
+                state = State.BODY;
+                body(text, i, length);
+                return;
+            }
+            if (c == '`' && matchesAt(text, i, FENCE)) {
+                fenced = true;
+            }
+        }
+        // 片段末尾可能是被截断的标记，下次从这里重新查找
+        seekFrom = Math.max(seekFrom, length - DOCTYPE.length() + 1);
+    }
+
+    private void body(CharSequence text, int from, int to) {
+        int run = from;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (fenced && c == '`') {
+                if (backticks == 0) {
+                    emitTrimmed(text, run, i);
+                    heldBeforeFence = held.length();
+                }
+                backticks++;
+                if (backticks == FENCE.length()) {
+                    // 代码块结束：暂存的内容去掉末尾空白后输出，结束标记本身丢弃
+                    emitHeld(text, i + 1 - FENCE.length(), heldBeforeFence);
+                    state = State.DONE;
+                    return;
+                }
+                held.append(c);
+                run = i + 1;
+                closeMatched = 0;
+                continue;
+            }
+            backticks = 0;
+            char lower = Character.toLowerCase(c);
+            if (lower == HTML_CLOSE.charAt(closeMatched)) {
+                closeMatched++;
+                if (closeMatched == HTML_CLOSE.length()) {
+                    emitTrimmed(text, run, i + 1);
+                    held.setLength(0);
+                    state = State.DONE;
+                    return;
+                }
+            } else {
+                closeMatched = lower == '<' ? 1 : 0;
+            }
+        }
+        emitTrimmed(text, run, to);
+    }
+
+    /**
+     * 输出[from, to)，其中末尾的空白先暂存，之后还有内容时再输出
+     */
+    private void emitTrimmed(CharSequence text, int from, int to) {
+        int last = to - 1;
+        while (last >= from && Character.isWhitespace(text.charAt(last))) {
+            last--;
+        }
+        if (last >= from) {
+            if (held.length() > 0) {
+                if (html == null) {
+                    // 一次性提取时暂存的字符在原文中紧挨着from
+                    emit(text, from - held.length(), from);
+                } else {
+                    emit(held, 0, held.length());
+                }
+                held.setLength(0);
+            }
+            emit(text, from, last + 1);
+        }
+        for (int k = last + 1; k < to; k++) {
+            held.append(text.charAt(k));
+        }
+    }
+
+    /**
+     * 输出暂存的前count个字符（去掉末尾空白），并清空暂存
+     * @param heldEnd 一次性提取时暂存字符之后的位置（暂存的字符在原文中紧挨着它）
+     */
+    private void emitHeld(CharSequence text, int heldEnd, int count) {
+        int length = count;
+        while (length > 0 && Character.isWhitespace(held.charAt(length - 1))) {
+            length--;
+        }
+        if (length > 0) {
+            if (html == null) {
+                emit(text, heldEnd - count, heldEnd - count + length);
+            } else {
+                emit(held, 0, length);
+            }
+        }
+        held.setLength(0);
+    }
+
+    private void emit(CharSequence text, int from, int to) {
+        if (html == null) {
+            if (start < 0) {
+                start = from;
+            }
+            end = to;
+            return;
+        }
+        html.append(text, from, to);
+        if (onDelta != null) {
+            onDelta.accept(text instanceof String && from == 0 && to == text.length()
+                ? (String) text
+                : text.subSequence(from, to).toString());
+        }
+    }
+
+    /**
+     * 输入结束，返回提取出的完整HTML
+     */
+    public String finish() {
+        if (state == State.SEEK) {
+            String fallback = fallback(html == null ? source : skipped.toString());
+            skipped.setLength(0);
+            state = State.DONE;
+            if (html == null) {
+                return fallback;
+            }
+            if (!fallback.isEmpty()) {
+                emit(fallback, 0, fallback.length());
+            }
+        }
+        if (state == State.BODY) {
+            // 没有结束标记：暂存的反引号属于内容，末尾空白丢弃
+            emitHeld(source, html == null ? source.length() : 0, held.length());
+        }
+        state = State.DONE;
+        if (html == null) {
+            return start < 0 ? "" : source.substring(start, end);
+        }
+        return html.toString();
+    }
+
+    /**
+     * 没有位于行首的HTML开始标记时：返回代码块中的内容，没有代码块时从第一个开始标记处截取，都没有时返回去除首尾空白的全文
+     */
+    private static String fallback(String content) {
+        content = content.trim();
+        int fence = content.indexOf(FENCE);
+        if (fence != -1) {
+            int from = fence + FENCE.length();
+            if (content.startsWith("html", from)) {
+                from += 4;
+            }
+            int close = content.indexOf(FENCE, from);
+            if (close != -1) {
+                return content.substring(from, close).trim();
+            }
+        }
+        for (int i = content.indexOf('<'); i >= 0; i = content.indexOf('<', i + 1)) {
+            if (matchesAt(content, i, DOCTYPE) || matchesAt(content, i, HTML_OPEN)) {
+                return content.substring(i);
+            }
+        }
+        return content;
+    }
+
+    /**
+     * index之前直到行首（或全文开头）是否只有空白
+     */
+    private static boolean atLineStart(CharSequence text, int index) {
+        for (int k = index - 1; k >= 0; k--) {
+            char c = text.charAt(k);
+            if (c == '\n') {
+                return true;
+            }
+            if (!Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesAt(CharSequence text, int index, String lowerLiteral) {
+        if (index + lowerLiteral.length() > text.length()) {
+            return false;
+        }
+        for (int k = 0; k < lowerLiteral.length(); k++) {
+            if (Character.toLowerCase(text.charAt(index + k)) != lowerLiteral.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,162 @@
+package aitool.service;
+
+import aitool.config.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HTTP缓存校验
+ * 为首页和生成的文件提供强ETag（内容SHA-256的前32位十六进制，每份内容只计算一次）和Last-Modified，
+ * 文件的ETag通过固定大小的缓冲区流式计算，缓存条目数有上限（按最近使用淘汰），
+ * 并按 If-None-Match / If-Modified-Since 判断是否可以返回304。
+ * 压缩副本的ETag在原ETag后附加编码名（"hash-gzip"），不同表示的ETag互不相同
+ */
+public final class HttpCaching {
+
+    /**
+     * 首页的Cache-Control：默认每次使用前向服务器校验（命中时只返回304）
+     */
+    public static final String INDEX_CACHE_CONTROL = Config.get("INDEX_CACHE_CONTROL", "no-cache");
+
+    /**
+     * 生成文件下载的Cache-Control
+     */
+    public static final String DOWNLOAD_CACHE_CONTROL = Config.get("DOWNLOAD_CACHE_CONTROL", "public, max-age=3600");
+
+    private static final int ETAG_HEX_LENGTH = 32;
+    private static final int MAX_FILE_TAGS = Math.max(16, Config.getInt("FILE_ETAG_CACHE_ENTRIES", 10000));
+
+    // 文件路径 -> ETag（文件的修改时间或大小变化时重新计算；按访问顺序淘汰，由自身加锁保护）
+    private static final Map<String, FileTag> FILE_TAGS = new LinkedHashMap<String, FileTag>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FileTag> eldest) {
+            return size() > MAX_FILE_TAGS;
+        }
+    };
+
+    private static final class FileTag {
+        final long lastModified;
+        final long length;
+        final String etag;
+
+        FileTag(long lastModified, long length, String etag) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.etag = etag;
+        }
+    }
+
+    private HttpCaching() {
+    }
+
+    /**
+     * 根据内容计算强ETag（含双引号）
+     */
+    public static String strongETag(byte[] content) {
+        return toETag(GenerationStore.contentHash(content));
+    }
+
+    private static String toETag(String hash) {
+        return "\"" + hash.substring(0, ETAG_HEX_LENGTH) + "\"";
+    }
+
+    /**
+     * 获取文件的强ETag，文件未变化时直接返回已计算的值
+     * 计算时流式读取文件（不持有锁），与下载一样每次请求的内存占用固定
+     */
+    public static String fileETag(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        FileTag tag;
+        synchronized (FILE_TAGS) {
+            tag = FILE_TAGS.get(path);
+        }
+        if (tag == null || tag.lastModified != lastModified || tag.length != length) {
+            tag = new FileTag(lastModified, length, toETag(GenerationStore.contentHash(file.toPath())));
+            synchronized (FILE_TAGS) {
+                FILE_TAGS.put(path, tag);
+            }
+        }
+        return tag.etag;
+    }
+
+    /**
+     * 文件已删除，移除缓存的ETag
+     */
+    public static void forgetFile(File file) {
+        synchronized (FILE_TAGS) {
+            FILE_TAGS.remove(file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 压缩表示的ETag（encoding为null时返回原ETag）
+     */
+    public static String variantETag(String etag, String encoding) {
+        if (encoding == null) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+    }
+
+    /**
+     * 判断条件请求是否可以返回304
+     * 存在If-None-Match时只比较ETag（弱比较），否则比较If-Modified-Since与修改时间（精确到秒）
+     */
+    public static boolean isNotModified(String ifNoneMatch, String ifModifiedSince, String etag, long lastModified) {
+        if (ifNoneMatch != null && !ifNoneMatch.trim().isEmpty()) {
+            return matches(ifNoneMatch, etag);
+        }
+        long since = parseDate(ifModifiedSince);
+        return since >= 0 && lastModified / 1000 * 1000 <= since;
+    }
+
+    /**
+     * If-None-Match 是否包含指定ETag（"*" 匹配任意ETag，忽略 W/ 前缀）
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 格式化HTTP日期（RFC 1123）
+     */
+    public static String formatDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+    }
+
+    /**
+     * 解析HTTP日期，为空或格式无效时返回-1
+     */
+    public static long parseDate(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package aitool.service;
+
+import aitool.config.Config;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 共享HTTP客户端资源
+ * 所有AI客户端（ArkService）、可达性探测和连接诊断共用同一个连接池和调度器，
+ * 重复调用同一接入点时复用已建立的TCP/TLS连接（HTTP/2、keep-alive），超时使用AI_*_TIMEOUT配置
+ */
+public final class HttpClients {
+
+    private static final ConnectionPool CONNECTION_POOL = new ConnectionPool(
+        Math.max(1, Config.getInt("AI_HTTP_MAX_IDLE_CONNECTIONS", 20)),
+        Math.max(1, Config.getLong("AI_HTTP_KEEP_ALIVE_SECONDS", 300)),
+        TimeUnit.SECONDS);
+
+    private static final Dispatcher DISPATCHER = createDispatcher();
+
+    private static final OkHttpClient SHARED_CLIENT = new OkHttpClient.Builder()
+        .connectionPool(CONNECTION_POOL)
+        .dispatcher(DISPATCHER)
+        .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+        .connectTimeout(connectTimeout().getSeconds(), TimeUnit.SECONDS)
+        .readTimeout(readTimeout().getSeconds(), TimeUnit.SECONDS)
+        .writeTimeout(writeTimeout().getSeconds(), TimeUnit.SECONDS)
+        .retryOnConnectionFailure(true)
+        .build();
+
+    private HttpClients() {
+    }
+
+    /**
+     * 调度器使用守护线程，进程退出时不需要逐个关闭客户端
+     */
+    private static Dispatcher createDispatcher() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            r -> {
+                Thread thread = new Thread(r, "ai-http-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(Math.max(1, Config.getInt("AI_HTTP_MAX_REQUESTS", 64)));
+        dispatcher.setMaxRequestsPerHost(Math.max(1, Config.getInt("AI_HTTP_MAX_REQUESTS_PER_HOST", 32)));
+        return dispatcher;
+    }
+
+    /**
+     * 共享连接池
+     */
+    public static ConnectionPool connectionPool() {
+        return CONNECTION_POOL;
+    }
+
+    /**
+     * 共享调度器
+     */
+    public static Dispatcher dispatcher() {
+        return DISPATCHER;
+    }
+
+    /**
+     * 使用配置超时的共享客户端
+     */
+    public static OkHttpClient shared() {
+        return SHARED_CLIENT;
+    }
+
+    /**
+     * 使用自定义超时的客户端（与共享客户端共用连接池和调度器）
+     */
+    public static OkHttpClient withTimeouts(long connectTimeout, long readTimeout, TimeUnit unit) {
+        return SHARED_CLIENT.newBuilder()
+            .connectTimeout(connectTimeout, unit)
+            .readTimeout(readTimeout, unit)
+            .build();
+    }
+
+    /**
+     * 连接超时（AI_CONNECT_TIMEOUT，秒）
+     */
+    public static Duration connectTimeout() {
+        return Duration.ofSeconds(Math.max(1, Config.getLong("AI_CONNECT_TIMEOUT", 30)));
+    }
+
+    /**
+     * 读取超时（AI_READ_TIMEOUT，秒）
+     */
+    public static Duration readTimeout() {
+        return Duration.ofSeconds(Math.max(1, Config.getLong("AI_READ_TIMEOUT", 120)));
+    }
+
+    /**
+     * 写入超时（AI_WRITE_TIMEOUT，秒）
+     */
+    public static Duration writeTimeout() {
+        return Duration.ofSeconds(Math.max(1, Config.getLong("AI_WRITE_TIMEOUT", 60)));
+    }
+
+    /**
+     * 获取连接池与调度器统计信息
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", CONNECTION_POOL.connectionCount());
+        stats.put("idleConnections", CONNECTION_POOL.idleConnectionCount());
+        stats.put("runningCalls", DISPATCHER.runningCallsCount());
+        stats.put("queuedCalls", DISPATCHER.queuedCallsCount());
+        stats.put("maxRequests", DISPATCHER.getMaxRequests());
+        stats.put("maxRequestsPerHost", DISPATCHER.getMaxRequestsPerHost());
+        return stats;
+    }
+}
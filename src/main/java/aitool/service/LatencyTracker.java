@@ -0,0 +1,54 @@
+package aitool.service;
+
+import java.util.Arrays;
+
+/**
+ * 延迟统计
+ * 保留最近固定数量的延迟样本（环形缓冲区），按需计算分位数
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    /**
+     * @param capacity 保留的最近样本数
+     */
+    public LatencyTracker(int capacity) {
+        this.samples = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * 记录一次延迟（毫秒）
+     */
+    public synchronized void record(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * 计算分位数
+     * @param percentile 分位（0~100），如95表示p95
+     * @return 延迟（毫秒），没有样本时返回-1
+     */
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, rank))];
+    }
+
+    /**
+     * 当前样本数
+     */
+    public synchronized int count() {
+        return count;
+    }
+}
@@ -0,0 +1,175 @@
+package aitool.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * AI客户端负载均衡
+ * 为每个请求给出客户端的尝试顺序：第一个是本次选中的客户端，其余按策略排列作为容灾备选
+ * 支持的策略（AI_LB_POLICY）：
+ * priority（默认，按优先级，粘滞在最近成功的客户端）、round_robin（轮询）、weighted（平滑加权轮询）、
+ * least_outstanding（进行中请求最少）、latency（健康评分最好，即延迟EWMA按错误率放大后最小）
+ */
+public class LoadBalancer {
+
+    /**
+     * 负载均衡策略
+     */
+    public enum Policy {
+        PRIORITY, ROUND_ROBIN, WEIGHTED, LEAST_OUTSTANDING, LATENCY;
+
+        /**
+         * 解析配置值（不区分大小写，支持连字符），无法识别时返回null
+         */
+        public static Policy parse(String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return PRIORITY;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private final Policy policy;
+    private final int[] weights;
+    private final List<ClientHealth> healths;
+    private final AtomicIntegerArray outstanding;
+    private final AtomicInteger rrCounter = new AtomicInteger();
+    // 平滑加权轮询的当前权重
+    private final int[] currentWeights;
+
+    /**
+     * @param policy 策略
+     * @param weights 各客户端权重（weighted策略使用，0表示只作为备用）
+     * @param healths 各客户端健康状态（latency策略使用）
+     */
+    public LoadBalancer(Policy policy, int[] weights, List<ClientHealth> healths) {
+        this.policy = policy;
+        this.healths = healths;
+        this.weights = new int[healths.size()];
+        boolean anyPositive = false;
+        for (int i = 0; i < this.weights.length; i++) {
+            this.weights[i] = weights != null && i < weights.length ? Math.max(0, weights[i]) : 1;
+            anyPositive |= this.weights[i] > 0;
+        }
+        if (!anyPositive) {
+            Arrays.fill(this.weights, 1);
+        }
+        this.currentWeights = new int[healths.size()];
+        this.outstanding = new AtomicIntegerArray(healths.size());
+    }
+
+    /**
+     * 计算本次请求的客户端尝试顺序
+     * @param preferredIndex 最近成功的客户端（priority策略从它开始）
+     */
+    public int[] order(int preferredIndex) {
+        int size = healths.size();
+        switch (policy) {
+            case ROUND_ROBIN:
+                return rotate(Math.floorMod(rrCounter.getAndIncrement(), size));
+            case WEIGHTED:
+                return weightedOrder();
+            case LEAST_OUTSTANDING:
+                return sortedOrder(Comparator.comparingInt(outstanding::get));
+            case LATENCY:
+                return sortedOrder(Comparator.comparingDouble(i -> healths.get(i).score()));
+            case PRIORITY:
+            default:
+                return rotate(preferredIndex);
+        }
+    }
+
+    /**
+     * 从start开始循环一圈
+     */
+    private int[] rotate(int start) {
+        int size = healths.size();
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (start + i) % size;
+        }
+        return order;
+    }
+
+    /**
+     * 按比较器排序；相同的客户端之间按轮询起点打散，避免总是落在同一个客户端上
+     */
+    private int[] sortedOrder(Comparator<Integer> comparator) {
+        int[] rotated = rotate(Math.floorMod(rrCounter.getAndIncrement(), healths.size()));
+        List<Integer> indices = new ArrayList<>();
+        for (int index : rotated) {
+            indices.add(index);
+        }
+        // List.sort是稳定排序，比较结果相同时保持轮询顺序
+        indices.sort(comparator);
+        return indices.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 平滑加权轮询（同Nginx）选出第一个客户端，其余按权重从高到低排列
+     */
+    private int[] weightedOrder() {
+        int size = healths.size();
+        int selected = 0;
+        synchronized (currentWeights) {
+            int total = 0;
+            for (int i = 0; i < size; i++) {
+                currentWeights[i] += weights[i];
+                total += weights[i];
+                if (currentWeights[i] > currentWeights[selected]) {
+                    selected = i;
+                }
+            }
+            currentWeights[selected] -= total;
+        }
+
+        List<Integer> rest = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (i != selected) {
+                rest.add(i);
+            }
+        }
+        rest.sort((a, b) -> Integer.compare(weights[b], weights[a]));
+
+        int[] order = new int[size];
+        order[0] = selected;
+        for (int i = 0; i < rest.size(); i++) {
+            order[i + 1] = rest.get(i);
+        }
+        return order;
+    }
+
+    /**
+     * 客户端开始处理一个请求
+     */
+    public void onStart(int index) {
+        outstanding.incrementAndGet(index);
+    }
+
+    /**
+     * 客户端结束处理一个请求（成功、失败或取消）
+     */
+    public void onFinish(int index) {
+        outstanding.decrementAndGet(index);
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public int getWeight(int index) {
+        return weights[index];
+    }
+
+    public int getOutstanding(int index) {
+        return outstanding.get(index);
+    }
+}
@@ -0,0 +1,95 @@
+package aitool.service;
+
+import org.slf4j.MDC;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * 日志上下文（SLF4J MDC）
+ * 每个HTTP请求分配一个请求ID（优先使用请求头 X-Request-Id），该请求产生的日志都带有 requestId 字段；
+ * 任务提交到其他线程执行时用 wrap 包装，把提交方的上下文带到执行线程
+ */
+public final class LogContext {
+
+    public static final String REQUEST_ID = "requestId";
+    public static final String HEADER = "X-Request-Id";
+
+    private static final int MAX_HEADER_LENGTH = 64;
+
+    private LogContext() {
+    }
+
+    /**
+     * 开始一个请求：使用客户端传入的请求ID（过长或含非法字符时忽略），没有时生成一个
+     * @return 本次请求的ID
+     */
+    public static String begin(String requestIdHeader) {
+        String requestId = isValid(requestIdHeader)
+            ? requestIdHeader
+            : UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+        MDC.put(REQUEST_ID, requestId);
+        return requestId;
+    }
+
+    /**
+     * 结束请求，清除当前线程的上下文
+     */
+    public static void end() {
+        MDC.remove(REQUEST_ID);
+    }
+
+    private static boolean isValid(String value) {
+        if (value == null || value.isEmpty() || value.length() > MAX_HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 包装任务，在执行线程中恢复提交时的上下文，执行结束后还原
+     */
+    public static Runnable wrap(Runnable task) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            apply(context);
+            try {
+                task.run();
+            } finally {
+                apply(previous);
+            }
+        };
+    }
+
+    /**
+     * 包装任务，在执行线程中恢复提交时的上下文，执行结束后还原
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            apply(context);
+            try {
+                return task.call();
+            } finally {
+                apply(previous);
+            }
+        };
+    }
+
+    private static void apply(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package aitool.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.core.instrument.binder.system.UptimeMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 运行指标（Micrometer，Prometheus格式）
+ * 全进程共用一个注册表，Spring版和内置HttpServer版都通过 /metrics 输出：
+ * <ul>
+ *   <li>aitool_pipeline_stage_seconds{stage, outcome}：生成流程各步骤耗时（缓存、已保存结果、相似文件、快捷模板、AI生成、HTML校验、保存文件）</li>
+ *   <li>aitool_ai_call_seconds{client, outcome}：每个AI客户端的调用耗时</li>
+ *   <li>aitool_ai_failures_total{client, reason}：每个AI客户端按失败原因分类的失败（切换）次数</li>
+ *   <li>aitool_cache_requests_total{cache, result}：各级缓存的命中/未命中次数</li>
+ *   <li>aitool_queue_depth{queue}：任务队列和请求线程池的排队数</li>
+ * </ul>
+ */
+public final class Metrics {
+
+    // 生成流程的步骤名称（stage标签）
+    public static final String STAGE_CONTENT_CACHE = "content_cache";
+    public static final String STAGE_STORED_RESULT = "stored_result";
+    public static final String STAGE_SIMILAR_FILE = "similar_file";
+    public static final String STAGE_TEMPLATE_SHORTCUT = "template_shortcut";
+    public static final String STAGE_AI_GENERATE = "ai_generate";
+    public static final String STAGE_HTML_VALIDATION = "html_validation";
+    public static final String STAGE_FILE_SAVE = "file_save";
+
+    /**
+     * Prometheus文本格式的Content-Type
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final PrometheusMeterRegistry REGISTRY = createRegistry();
+
+    private Metrics() {
+    }
+
+    private static PrometheusMeterRegistry createRegistry() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmGcMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ClassLoaderMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+        new UptimeMetrics().bindTo(registry);
+        return registry;
+    }
+
+    /**
+     * 开始计时
+     */
+    public static Timer.Sample start() {
+        return Timer.start(REGISTRY);
+    }
+
+    /**
+     * 记录一个流程步骤的耗时
+     * @param outcome 结果（hit / miss、success / failure、valid / invalid）
+     */
+    public static void stage(Timer.Sample sample, String stage, String outcome) {
+        sample.stop(Timer.builder("aitool.pipeline.stage")
+            .description("生成流程各步骤耗时")
+            .tag("stage", stage)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofMinutes(5))
+            .register(REGISTRY));
+    }
+
+    /**
+     * 记录一个查找步骤的耗时（命中 / 未命中）
+     */
+    public static void stage(Timer.Sample sample, String stage, boolean hit) {
+        stage(sample, stage, hit ? "hit" : "miss");
+    }
+
+    /**
+     * 记录一次AI客户端调用
+     */
+    public static void aiCall(String client, boolean success, long latencyMillis) {
+        Timer.builder("aitool.ai.call")
+            .description("AI客户端调用耗时")
+            .tag("client", client)
+            .tag("outcome", success ? "success" : "failure")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(100))
+            .maximumExpectedValue(Duration.ofMinutes(5))
+            .register(REGISTRY)
+            .record(latencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一次AI客户端失败（之后切换到下一个客户端）
+     * @param reason 失败原因分类（connection / auth / quota / unavailable / billing / unknown）
+     */
+    public static void aiFailure(String client, String reason) {
+        Counter.builder("aitool.ai.failures")
+            .description("AI客户端按失败原因分类的失败次数")
+            .tag("client", client)
+            .tag("reason", reason)
+            .register(REGISTRY)
+            .increment();
+    }
+
+    /**
+     * 登记缓存的命中/未命中计数（从getStats()的hits、misses读取，抓取时才计算）
+     * Micrometer只弱引用owner，owner需由调用方长期持有
+     */
+    public static <T> void bindCache(String cache, T owner, Function<T, Map<String, Object>> stats) {
+        FunctionCounter.builder("aitool.cache.requests", owner, o -> number(stats.apply(o), "hits"))
+            .description("缓存查找次数")
+            .tag("cache", cache)
+            .tag("result", "hit")
+            .register(REGISTRY);
+        FunctionCounter.builder("aitool.cache.requests", owner, o -> number(stats.apply(o), "misses"))
+            .description("缓存查找次数")
+            .tag("cache", cache)
+            .tag("result", "miss")
+            .register(REGISTRY);
+    }
+
+    /**
+     * 登记队列的排队数（同样只弱引用owner）
+     */
+    public static <T> void bindQueue(String queue, T owner, ToDoubleFunction<T> depth) {
+        Gauge.builder("aitool.queue.depth", owner, depth)
+            .description("排队等待的任务数")
+            .tag("queue", queue)
+            .register(REGISTRY);
+    }
+
+    /**
+     * Prometheus文本格式的全部指标
+     */
+    public static String scrape() {
+        return REGISTRY.scrape();
+    }
+
+    private static double number(Map<String, Object> stats, String key) {
+        Object value = stats.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+}
@@ -0,0 +1,535 @@
+package aitool.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * output目录文件索引
+ * 启动时扫描一次目录，在内存中维护"文件名字符二元组 -> 文件"的倒排索引，
+ * 以及按修改时间、大小、文件名排序的有序集合（用于分页列出文件），
+ * 之后通过WatchService（以及保存文件时的主动登记）保持索引最新，
+ * 关键词查找和文件列表都不再需要遍历目录和读取磁盘
+ */
+public class OutputFileIndex {
+
+    private final File dir;
+    private final Map<String, IndexedFile> filesByName = new HashMap<>();
+    private final Map<String, Set<IndexedFile>> postings = new HashMap<>();
+    private final NavigableSet<IndexedFile> byName = new TreeSet<>(BY_NAME);
+    private final NavigableSet<IndexedFile> byTime = new TreeSet<>(BY_TIME);
+    private final NavigableSet<IndexedFile> bySize = new TreeSet<>(BY_SIZE);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 是否已完成过一次扫描（首次扫描是建立索引，不通知监听器）
+    private boolean scanned;
+    private WatchService watchService;
+    private Thread watcherThread;
+    private volatile Consumer<String> changeListener;
+
+    /**
+     * 索引中的文件条目
+     */
+    static final class IndexedFile {
+        final File file;
+        final String name;
+        final String lowerName;
+        final long lastModified;
+        final long length;
+        final long createdAt;
+
+        IndexedFile(File file, long lastModified, long length, long createdAt) {
+            this.file = file;
+            this.name = file.getName();
+            this.lowerName = name.toLowerCase();
+            this.lastModified = lastModified;
+            this.length = length;
+            this.createdAt = createdAt;
+        }
+
+        /**
+         * 只含排序键的查找条目（用于在有序集合中定位游标和前缀范围）
+         */
+        private IndexedFile(String lowerName, String name, long lastModified, long length) {
+            this.file = null;
+            this.name = name;
+            this.lowerName = lowerName;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.createdAt = 0;
+        }
+
+        /**
+         * 读取文件属性创建条目，文件不存在时返回null
+         */
+        static IndexedFile of(File file) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                if (!attrs.isRegularFile()) {
+                    return null;
+                }
+                return new IndexedFile(file, attrs.lastModifiedTime().toMillis(), attrs.size(),
+                    attrs.creationTime().toMillis());
+            } catch (IOException e) {
+                return null;
+            } catch (InvalidPathException e) {
+                // 文件名无法按当前系统编码转换为Path时退回File接口（无法获取创建时间，使用修改时间）
+                return file.isFile() ? new IndexedFile(file, file.lastModified(), file.length(), file.lastModified()) : null;
+            }
+        }
+    }
+
+    /**
+     * 一页文件列表
+     */
+    static final class Page {
+        final List<IndexedFile> files;
+        final String nextCursor;
+
+        Page(List<IndexedFile> files, String nextCursor) {
+            this.files = files;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    // 文件名相同（不区分大小写）时再按原文件名排序，保证顺序唯一
+    private static final Comparator<IndexedFile> BY_NAME =
+        Comparator.<IndexedFile, String>comparing(f -> f.lowerName).thenComparing(f -> f.name);
+    private static final Comparator<IndexedFile> BY_TIME =
+        Comparator.<IndexedFile>comparingLong(f -> f.lastModified).thenComparing(BY_NAME);
+    private static final Comparator<IndexedFile> BY_SIZE =
+        Comparator.<IndexedFile>comparingLong(f -> f.length).thenComparing(BY_NAME);
+
+    public OutputFileIndex(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * 解析请求中的文件名，只允许直接位于dir中的文件（拒绝 ../、子目录和绝对路径）
+     * @return 规范化后的文件，文件名不合法时返回null
+     */
+    public static File resolve(File dir, String filename) {
+        if (filename == null || filename.isEmpty()) {
+            return null;
+        }
+        try {
+            File canonicalDir = dir.getCanonicalFile();
+            File file = new File(canonicalDir, filename).getCanonicalFile();
+            return canonicalDir.equals(file.getParentFile()) ? file : null;
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 设置文件变化监听器（参数为发生变化的文件名），用于同步失效相关缓存
+     */
+    public void setChangeListener(Consumer<String> listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * 重新扫描目录，重建整个索引
+     * 之后只对新增、删除、修改时间或大小变化的文件通知监听器（事件丢失后重扫时大部分文件并未变化）
+     */
+    public void rebuild() {
+        File[] files = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".html"));
+        Map<String, IndexedFile> previous;
+        Set<String> changed = new HashSet<>();
+        boolean notify;
+        lock.writeLock().lock();
+        try {
+            previous = new HashMap<>(filesByName);
+            notify = scanned;
+            scanned = true;
+            filesByName.clear();
+            postings.clear();
+            byName.clear();
+            byTime.clear();
+            bySize.clear();
+            if (files != null) {
+                for (File file : files) {
+                    IndexedFile entry = IndexedFile.of(file);
+                    if (entry != null) {
+                        addLocked(entry);
+                    }
+                }
+            }
+            if (notify) {
+                for (IndexedFile entry : filesByName.values()) {
+                    if (!sameFile(previous.remove(entry.name), entry)) {
+                        changed.add(entry.name);
+                    }
+                }
+                // 剩下的是已被删除的文件
+                changed.addAll(previous.keySet());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (String name : changed) {
+            fireChanged(name);
+        }
+    }
+
+    /**
+     * 两个条目是否对应未变化的同一文件（修改时间和大小都相同）
+     */
+    private static boolean sameFile(IndexedFile old, IndexedFile current) {
+        return old != null && old.lastModified == current.lastModified && old.length == current.length;
+    }
+
+    /**
+     * 登记（或更新）一个文件；文件已登记且未变化时不通知监听器
+     */
+    public void add(File file) {
+        if (!file.getName().toLowerCase().endsWith(".html")) {
+            return;
+        }
+        IndexedFile entry = IndexedFile.of(file);
+        if (entry == null) {
+            remove(file.getName());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (sameFile(filesByName.get(entry.name), entry)) {
+                return;
+            }
+            removeLocked(file.getName());
+            addLocked(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireChanged(file.getName());
+    }
+
+    /**
+     * 从索引中移除文件
+     */
+    public void remove(String filename) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(filename);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireChanged(filename);
+    }
+
+    private void fireChanged(String filename) {
+        Consumer<String> listener = changeListener;
+        if (listener != null) {
+            listener.accept(filename);
+        }
+    }
+
+    private void addLocked(IndexedFile entry) {
+        filesByName.put(entry.name, entry);
+        byName.add(entry);
+        byTime.add(entry);
+        bySize.add(entry);
+        for (String gram : bigrams(entry.lowerName)) {
+            postings.computeIfAbsent(gram, k -> new HashSet<>()).add(entry);
+        }
+    }
+
+    private void removeLocked(String filename) {
+        IndexedFile old = filesByName.remove(filename);
+        if (old == null) {
+            return;
+        }
+        byName.remove(old);
+        byTime.remove(old);
+        bySize.remove(old);
+        for (String gram : bigrams(old.lowerName)) {
+            Set<IndexedFile> set = postings.get(gram);
+            if (set != null) {
+                set.remove(old);
+                if (set.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按关键词查找最佳匹配文件
+     * 匹配规则与原目录扫描一致：文件名（小写）包含关键词即计为命中，
+     * 命中数达到关键词数量的一半（或全部命中）才算匹配；命中数多者优先，命中数相同时取最新的文件
+     */
+    public File findBestMatch(String[] keywords) {
+        if (keywords == null || keywords.length == 0) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<IndexedFile, Integer> matchCounts = new HashMap<>();
+            for (String keyword : keywords) {
+                String lowerKeyword = keyword.toLowerCase();
+                for (IndexedFile entry : candidates(lowerKeyword)) {
+                    if (entry.lowerName.contains(lowerKeyword)) {
+                        matchCounts.merge(entry, 1, Integer::sum);
+                    }
+                }
+            }
+
+            IndexedFile bestMatch = null;
+            int bestMatchCount = 0;
+            for (Map.Entry<IndexedFile, Integer> e : matchCounts.entrySet()) {
+                int matchCount = e.getValue();
+                IndexedFile entry = e.getKey();
+                if (matchCount > 0 && (matchCount >= keywords.length / 2 || matchCount == keywords.length)) {
+                    if (matchCount > bestMatchCount || (matchCount == bestMatchCount && entry.lastModified > (bestMatch != null ? bestMatch.lastModified : 0))) {
+                        bestMatch = entry;
+                        bestMatchCount = matchCount;
+                    }
+                }
+            }
+            return bestMatch != null ? bestMatch.file : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按查询条件列出一页文件
+     * 指定了关键词（至少两个字符）时从二元组倒排表取候选文件排序后分页；
+     * 否则直接从对应的有序集合中定位游标向后遍历（按文件名排序时前缀条件直接截取范围）
+     */
+    Page list(FileQuery query) {
+        FileQuery.Sort sort = query.getSort();
+        Comparator<IndexedFile> order = query.isDescending() ? comparator(sort).reversed() : comparator(sort);
+        String prefix = query.getPrefix();
+        String keyword = query.getKeyword();
+        IndexedFile cursor = query.hasCursor() ? cursorProbe(query) : null;
+        int limit = query.getLimit();
+
+        List<IndexedFile> files = new ArrayList<>(Math.min(limit + 1, 64));
+        lock.readLock().lock();
+        try {
+            Iterable<IndexedFile> source;
+            if (keyword != null && keyword.length() >= 2) {
+                List<IndexedFile> candidates = new ArrayList<>(candidates(keyword));
+                candidates.sort(order);
+                source = candidates;
+            } else {
+                NavigableSet<IndexedFile> set = sortedSet(sort);
+                if (sort == FileQuery.Sort.NAME && prefix != null) {
+                    set = set.subSet(new IndexedFile(prefix, "", 0, 0), true,
+                        new IndexedFile(prefix + Character.MAX_VALUE, "", 0, 0), false);
+                }
+                if (query.isDescending()) {
+                    set = set.descendingSet();
+                }
+                if (cursor != null) {
+                    set = set.tailSet(cursor, false);
+                }
+                source = set;
+            }
+
+            for (IndexedFile entry : source) {
+                if (cursor != null && order.compare(entry, cursor) <= 0) {
+                    continue;
+                }
+                if ((prefix != null && !entry.lowerName.startsWith(prefix))
+                        || (keyword != null && !entry.lowerName.contains(keyword))) {
+                    continue;
+                }
+                files.add(entry);
+                // 多取一条用于判断是否还有下一页
+                if (files.size() > limit) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        String nextCursor = null;
+        if (files.size() > limit) {
+            files.remove(limit);
+            IndexedFile last = files.get(limit - 1);
+            nextCursor = FileQuery.cursor(sort, sortKey(last, sort), last.name);
+        }
+        return new Page(files, nextCursor);
+    }
+
+    private static Comparator<IndexedFile> comparator(FileQuery.Sort sort) {
+        switch (sort) {
+            case SIZE:
+                return BY_SIZE;
+            case NAME:
+                return BY_NAME;
+            case TIME:
+            default:
+                return BY_TIME;
+        }
+    }
+
+    private NavigableSet<IndexedFile> sortedSet(FileQuery.Sort sort) {
+        switch (sort) {
+            case SIZE:
+                return bySize;
+            case NAME:
+                return byName;
+            case TIME:
+            default:
+                return byTime;
+        }
+    }
+
+    private static long sortKey(IndexedFile entry, FileQuery.Sort sort) {
+        switch (sort) {
+            case SIZE:
+                return entry.length;
+            case TIME:
+                return entry.lastModified;
+            case NAME:
+            default:
+                return 0;
+        }
+    }
+
+    private static IndexedFile cursorProbe(FileQuery query) {
+        String name = query.getCursorName();
+        long key = query.getCursorKey();
+        return new IndexedFile(name.toLowerCase(), name,
+            query.getSort() == FileQuery.Sort.TIME ? key : 0,
+            query.getSort() == FileQuery.Sort.SIZE ? key : 0);
+    }
+
+    /**
+     * 获取可能包含关键词的候选文件（取关键词各二元组倒排表中最短的一个）
+     */
+    private Collection<IndexedFile> candidates(String lowerKeyword) {
+        if (lowerKeyword.length() < 2) {
+            // 单字符无法使用二元组索引，退化为遍历内存中的全部条目
+            return filesByName.values();
+        }
+        Set<IndexedFile> smallest = null;
+        for (String gram : bigrams(lowerKeyword)) {
+            Set<IndexedFile> set = postings.get(gram);
+            if (set == null) {
+                return Collections.emptyList();
+            }
+            if (smallest == null || set.size() < smallest.size()) {
+                smallest = set;
+            }
+        }
+        return smallest != null ? smallest : Collections.emptyList();
+    }
+
+    private static Set<String> bigrams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 2 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * 获取已索引的文件数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return filesByName.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 启动目录监听，文件新增、修改、删除时增量更新索引
+     */
+    public synchronized void startWatching() {
+        if (watcherThread != null) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            dir.toPath().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            System.err.println("⚠ 无法监听输出目录，文件索引仅在保存时更新: " + e.getMessage());
+            return;
+        }
+
+        WatchService service = watchService;
+        watcherThread = new Thread(() -> watchLoop(service), "output-index-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    private void watchLoop(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // 事件丢失，重新扫描目录
+                    rebuild();
+                    continue;
+                }
+                Path name = (Path) event.context();
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    remove(name.toString());
+                } else {
+                    add(new File(dir, name.toString()));
+                }
+            }
+
+            if (!key.reset()) {
+                // 目录已不可访问，停止监听
+                return;
+            }
+        }
+    }
+
+    /**
+     * 停止目录监听
+     */
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // 忽略关闭时的异常
+            }
+            watchService = null;
+        }
+        watcherThread = null;
+    }
+}
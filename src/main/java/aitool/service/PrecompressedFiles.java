@@ -0,0 +1,206 @@
+package aitool.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预压缩文件
+ * 保存生成的HTML时同时写入 .gz 压缩副本（文件名.html.gz），下载时按 Accept-Encoding 协商：
+ * 存在 .br 副本（由外部工具生成）且客户端支持时返回br，其次返回gzip，都不支持时返回原文件。
+ * 压缩副本比原文件旧（原文件被修改过）时视为无效，下载时返回原文件；
+ * 缺失或过期的gzip副本由后台线程补齐（启动时扫描一次，之后随目录变化），下载请求本身从不写文件
+ */
+public final class PrecompressedFiles {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrecompressedFiles.class);
+
+    public static final String GZIP = "gzip";
+    public static final String BROTLI = "br";
+
+    /**
+     * 协商结果：要发送的文件及其Content-Encoding（原文件时为null）
+     */
+    public static final class Variant {
+        private final File file;
+        private final String encoding;
+
+        Variant(File file, String encoding) {
+            this.file = file;
+            this.encoding = encoding;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getEncoding() {
+            return encoding;
+        }
+    }
+
+    // 补齐gzip副本的后台线程（单线程，按提交顺序逐个处理）
+    private static final ExecutorService BACKFILL = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "gzip-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private PrecompressedFiles() {
+    }
+
+    /**
+     * 按Accept-Encoding选择要发送的文件
+     */
+    public static Variant select(File file, String acceptEncoding) {
+        if (accepts(acceptEncoding, BROTLI)) {
+            File br = sibling(file, BROTLI);
+            if (isFresh(br, file)) {
+                return new Variant(br, BROTLI);
+            }
+        }
+        if (accepts(acceptEncoding, GZIP)) {
+            File gz = sibling(file, GZIP);
+            if (isFresh(gz, file)) {
+                return new Variant(gz, GZIP);
+            }
+        }
+        return new Variant(file, null);
+    }
+
+    /**
+     * 写入文件的gzip副本（先写独立的临时文件再原子替换，多个写入方同时写同一副本时互不干扰）
+     */
+    public static void writeGzip(File file, byte[] content) throws IOException {
+        Path target = sibling(file, GZIP).toPath();
+        Path temp = Files.createTempFile(target.getParent(), "." + target.getFileName() + ".", ".tmp");
+        try {
+            Files.write(temp, gzip(content));
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 在后台为目录中缺少或已过期gzip副本的HTML文件补齐副本（用于旧版本保存的文件，启动时调用一次）
+     */
+    public static void backfillGzip(File dir) {
+        BACKFILL.execute(() -> {
+            File[] files = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".html"));
+            if (files == null) {
+                return;
+            }
+            int written = 0;
+            for (File file : files) {
+                if (refreshGzip(file)) {
+                    written++;
+                }
+            }
+            if (written > 0) {
+                System.out.println("✓ 已补齐压缩副本: " + written + " 个文件");
+            }
+        });
+    }
+
+    /**
+     * 在后台重新生成单个文件的gzip副本（文件被外部修改后调用），副本仍有效时不做任何事
+     */
+    public static void refreshGzipAsync(File file) {
+        BACKFILL.execute(() -> refreshGzip(file));
+    }
+
+    /**
+     * 副本缺失或过期时重新生成
+     * @return 是否写入了新的副本
+     */
+    private static boolean refreshGzip(File file) {
+        File gz = sibling(file, GZIP);
+        if (!file.isFile() || isFresh(gz, file)) {
+            return false;
+        }
+        try {
+            writeGzip(file, Files.readAllBytes(file.toPath()));
+            return true;
+        } catch (IOException e) {
+            logger.warn("生成压缩副本失败 file={} error={}", gz.getAbsolutePath(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 删除文件的压缩副本（原文件被删除时调用）
+     */
+    public static void deleteSiblings(File file) {
+        sibling(file, GZIP).delete();
+        sibling(file, BROTLI).delete();
+    }
+
+    /**
+     * gzip压缩
+     */
+    public static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            // 内存流不会抛出IO异常
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 客户端是否接受指定的内容编码（q=0表示明确拒绝，*匹配任意编码）
+     */
+    public static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            String name = params[0].trim().toLowerCase();
+            boolean rejected = false;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim().toLowerCase();
+                if (param.startsWith("q=")) {
+                    try {
+                        rejected = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        rejected = false;
+                    }
+                }
+            }
+            if (name.equals(coding)) {
+                return !rejected;
+            }
+            if (name.equals("*")) {
+                wildcard = !rejected;
+            }
+        }
+        return wildcard;
+    }
+
+    private static File sibling(File file, String encoding) {
+        return new File(file.getParentFile(), file.getName() + (GZIP.equals(encoding) ? ".gz" : ".br"));
+    }
+
+    private static boolean isFresh(File compressed, File original) {
+        return compressed.isFile() && compressed.lastModified() >= original.lastModified();
+    }
+}
@@ -0,0 +1,245 @@
+package aitool.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * AI客户端限流器（令牌桶）
+ * 每个客户端两个令牌桶：每分钟请求数（RPM）和每分钟Token数（TPM），为0表示不限制
+ * 调用方按先来后到排队等待令牌，超过最长等待时间则放弃（由容灾管理器切换到其他客户端），而不是直接撞上429
+ * 服务端返回限流错误时，按Retry-After暂停发送，并把速率减半（AIMD），之后每次成功调用逐步恢复
+ */
+public class RateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+
+    /**
+     * 排队等待令牌超时
+     */
+    public static class QueueTimeoutException extends Exception {
+        public QueueTimeoutException(String message) {
+            super(message);
+        }
+    }
+
+    private static final double MIN_RATE_FACTOR = 0.1;
+    private static final double RATE_RECOVERY_STEP = 0.05;
+    private static final Pattern RETRY_AFTER_PATTERN = Pattern.compile(
+        "(?:retry[- _]?after|try again in)[\"':=\\s]*(\\d+(?:\\.\\d+)?)\\s*(ms|s|秒)?", Pattern.CASE_INSENSITIVE);
+
+    private final String clientName;
+    private final double requestsPerMinute;
+    private final double tokensPerMinute;
+    private final long defaultBackoffMillis;
+
+    private double requestLevel;
+    private double tokenLevel;
+    private long lastRefill;
+    private long pausedUntil;
+    private double rateFactor = 1.0;
+    // 排队中的调用方（先来先得）
+    private final ArrayDeque<Object> waiters = new ArrayDeque<>();
+
+    private long acquired;
+    private long waited;
+    private long totalWaitMillis;
+    private long timeouts;
+    private long rateLimited;
+
+    /**
+     * @param clientName 客户端名称
+     * @param requestsPerMinute 每分钟请求数上限，0表示不限制
+     * @param tokensPerMinute 每分钟Token数上限，0表示不限制
+     * @param defaultBackoffMillis 限流错误未给出Retry-After时的暂停时间
+     */
+    public RateLimiter(String clientName, int requestsPerMinute, int tokensPerMinute, long defaultBackoffMillis) {
+        this.clientName = clientName;
+        this.requestsPerMinute = Math.max(0, requestsPerMinute);
+        this.tokensPerMinute = Math.max(0, tokensPerMinute);
+        this.defaultBackoffMillis = Math.max(0, defaultBackoffMillis);
+        // 桶容量为一分钟的配额，初始为满
+        this.requestLevel = this.requestsPerMinute;
+        this.tokenLevel = this.tokensPerMinute;
+        this.lastRefill = System.currentTimeMillis();
+    }
+
+    /**
+     * 排队获取一次请求的令牌
+     * @param tokens 预估消耗的Token数
+     * @param maxWaitMillis 最长等待时间，0表示只在当前就有令牌时才通过
+     * @throws QueueTimeoutException 在最长等待时间内无法获得令牌
+     */
+    public synchronized void acquire(long tokens, long maxWaitMillis) throws InterruptedException, QueueTimeoutException {
+        long start = System.currentTimeMillis();
+        long deadline = start + Math.max(0, maxWaitMillis);
+        if (tokensPerMinute > 0) {
+            // 超过桶容量的请求永远拿不到令牌，按桶容量计
+            tokens = Math.min(tokens, (long) tokensPerMinute);
+        }
+
+        Object ticket = new Object();
+        waiters.addLast(ticket);
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                if (waiters.peekFirst() == ticket) {
+                    refill(now);
+                    long waitMillis = millisUntilAvailable(tokens, now);
+                    if (waitMillis <= 0) {
+                        if (requestsPerMinute > 0) {
+                            requestLevel -= 1;
+                        }
+                        if (tokensPerMinute > 0) {
+                            tokenLevel -= tokens;
+                        }
+                        acquired++;
+                        if (now > start) {
+                            waited++;
+                            totalWaitMillis += now - start;
+                        }
+                        return;
+                    }
+                    if (now + waitMillis > deadline) {
+                        // 排在最前面也等不到，直接放弃，让后面的调用方继续
+                        throw timeout(waitMillis);
+                    }
+                    wait(waitMillis);
+                } else {
+                    if (now >= deadline) {
+                        throw timeout(-1);
+                    }
+                    wait(deadline - now);
+                }
+            }
+        } finally {
+            waiters.remove(ticket);
+            notifyAll();
+        }
+    }
+
+    private QueueTimeoutException timeout(long neededMillis) {
+        timeouts++;
+        String detail = neededMillis > 0 ? "，预计还需等待 " + neededMillis + "ms" : "";
+        return new QueueTimeoutException(clientName + " 限流排队超时" + detail);
+    }
+
+    /**
+     * 按实际消耗修正Token桶（预估偏少时补扣，偏多时退回）
+     * @param deltaTokens 实际消耗 - 预估消耗
+     */
+    public synchronized void reconcile(long deltaTokens) {
+        if (tokensPerMinute > 0 && deltaTokens != 0) {
+            tokenLevel = Math.min(tokensPerMinute, tokenLevel - deltaTokens);
+            notifyAll();
+        }
+    }
+
+    /**
+     * 调用成功，逐步恢复因限流错误降低的速率
+     */
+    public synchronized void onSuccess() {
+        rateFactor = Math.min(1.0, rateFactor + RATE_RECOVERY_STEP);
+    }
+
+    /**
+     * 服务端返回限流错误：在Retry-After时间内暂停发送，速率减半
+     * @param retryAfterMillis 服务端要求的等待时间，未知时传-1
+     */
+    public synchronized void onRateLimited(long retryAfterMillis) {
+        long now = System.currentTimeMillis();
+        refill(now);
+        rateLimited++;
+        rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor * 0.5);
+        long pause = retryAfterMillis > 0 ? retryAfterMillis : defaultBackoffMillis;
+        pausedUntil = Math.max(pausedUntil, now + pause);
+        // 本地令牌已不可信，清空请求桶
+        requestLevel = Math.min(requestLevel, 0);
+        logger.warn("被服务端限流 client={} pauseMs={} rate={}%", clientName, pause, Math.round(rateFactor * 100));
+    }
+
+    /**
+     * 按经过的时间补充令牌
+     */
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed <= 0) {
+            return;
+        }
+        lastRefill = now;
+        if (requestsPerMinute > 0) {
+            requestLevel = Math.min(requestsPerMinute, requestLevel + elapsed * requestsPerMinute * rateFactor / 60000.0);
+        }
+        if (tokensPerMinute > 0) {
+            tokenLevel = Math.min(tokensPerMinute, tokenLevel + elapsed * tokensPerMinute * rateFactor / 60000.0);
+        }
+    }
+
+    /**
+     * 距离令牌足够还需等待的时间（毫秒）
+     */
+    private long millisUntilAvailable(long tokens, long now) {
+        long waitMillis = pausedUntil - now;
+        if (requestsPerMinute > 0 && requestLevel < 1) {
+            waitMillis = Math.max(waitMillis, (long) Math.ceil((1 - requestLevel) * 60000.0 / (requestsPerMinute * rateFactor)));
+        }
+        if (tokensPerMinute > 0 && tokenLevel < tokens) {
+            waitMillis = Math.max(waitMillis, (long) Math.ceil((tokens - tokenLevel) * 60000.0 / (tokensPerMinute * rateFactor)));
+        }
+        return waitMillis;
+    }
+
+    /**
+     * 从错误信息中解析Retry-After（如 "Retry-After: 20"、"retry after 1.5s"、"try again in 500ms"）
+     * @return 毫秒，未找到时返回-1
+     */
+    public static long parseRetryAfterMillis(String errorMsg) {
+        if (errorMsg == null) {
+            return -1;
+        }
+        Matcher matcher = RETRY_AFTER_PATTERN.matcher(errorMsg);
+        if (!matcher.find()) {
+            return -1;
+        }
+        double value = Double.parseDouble(matcher.group(1));
+        String unit = matcher.group(2);
+        if (unit != null && unit.equalsIgnoreCase("ms")) {
+            return (long) value;
+        }
+        return (long) (value * 1000);
+    }
+
+    /**
+     * 粗略估算文本的Token数（中文约1字1 Token，英文约4字符1 Token，这里统一按2字符1 Token估算）
+     */
+    public static long estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 1) / 2;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        refill(now);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requestsPerMinute", (long) requestsPerMinute);
+        stats.put("tokensPerMinute", (long) tokensPerMinute);
+        stats.put("rateFactor", Math.round(rateFactor * 100) / 100.0);
+        stats.put("queued", waiters.size());
+        stats.put("acquired", acquired);
+        stats.put("waited", waited);
+        stats.put("avgWaitMs", waited == 0 ? 0 : totalWaitMillis / waited);
+        stats.put("timeouts", timeouts);
+        stats.put("rateLimited", rateLimited);
+        if (pausedUntil > now) {
+            stats.put("pausedRemainingMs", pausedUntil - now);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,224 @@
+package aitool.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 语义相似度缓存
+ * 为每个已保存的需求计算本地文本向量（TextEmbedder），放入HNSW近似最近邻索引；
+ * 新需求与已有需求的余弦相似度达到阈值时直接复用对应文件，同义改写（“做个计算器”/“我需要一个计算器”）也能命中，
+ * 而只共享个别词语的不同工具（“JSON格式化”/“JSON转CSV”）相似度低于阈值，不会误命中
+ */
+public class SemanticCache {
+
+    // 旧版文件名末尾的时间戳（_yyyyMMdd_HHmmss）或内容哈希（_12位十六进制）
+    private static final Pattern FILENAME_SUFFIX = Pattern.compile("(_\\d{8}_\\d{6}|_[0-9a-f]{12})?\\.html$", Pattern.CASE_INSENSITIVE);
+    private static final int SEARCH_CANDIDATES = 8;
+    // 已删除的向量达到该数量且超过索引的1/4时重建索引，回收已删除的编号
+    private static final int REBUILD_MIN_REMOVED = 32;
+
+    /**
+     * 查找结果
+     */
+    public static final class Match {
+        private final String filename;
+        private final String request;
+        private final float similarity;
+
+        Match(String filename, String request, float similarity) {
+            this.filename = filename;
+            this.request = request;
+            this.similarity = similarity;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        /**
+         * 命中的已有需求文本
+         */
+        public String getRequest() {
+            return request;
+        }
+
+        public float getSimilarity() {
+            return similarity;
+        }
+    }
+
+    private final TextEmbedder embedder;
+    private final double threshold;
+    // 以下字段由this保护；重建时整体替换，查找方通过index引用判断编号是否仍然有效
+    private HnswIndex index = new HnswIndex();
+    // 向量编号 -> 需求文本 / 文件名（与HnswIndex的编号一一对应）
+    private List<String> requests = new ArrayList<>();
+    private List<String> filenames = new ArrayList<>();
+    private final Map<String, List<Integer>> idsByFilename = new HashMap<>();
+    private final Set<Integer> removed = new HashSet<>();
+    private long rebuilds;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param threshold 命中所需的最低余弦相似度（0~1）
+     */
+    public SemanticCache(double threshold) {
+        this(new TextEmbedder(), threshold);
+    }
+
+    public SemanticCache(TextEmbedder embedder, double threshold) {
+        this.embedder = embedder;
+        this.threshold = threshold;
+    }
+
+    /**
+     * 登记一条需求及其对应文件，需求没有有效内容（全是修饰词）时忽略
+     */
+    public void add(String request, String filename) {
+        float[] vector = embedder.embed(request);
+        if (isZero(vector)) {
+            return;
+        }
+        synchronized (this) {
+            int id = index.add(vector);
+            requests.add(request);
+            filenames.add(filename);
+            idsByFilename.computeIfAbsent(filename, k -> new ArrayList<>()).add(id);
+        }
+    }
+
+    /**
+     * 登记没有生成记录的旧文件，以文件名中的关键词作为需求文本
+     */
+    public void addFile(String filename) {
+        String request = FILENAME_SUFFIX.matcher(filename).replaceFirst("").replace('_', ' ');
+        add(request, filename);
+    }
+
+    /**
+     * 文件已删除，之后的查找不再返回该文件
+     * 已删除的向量仍留在HNSW图中，达到一定比例时重建索引，避免最近邻候选被已删除的向量占满
+     */
+    public synchronized void removeFile(String filename) {
+        List<Integer> ids = idsByFilename.remove(filename);
+        if (ids != null) {
+            removed.addAll(ids);
+            if (removed.size() >= REBUILD_MIN_REMOVED && removed.size() * 4 >= index.size()) {
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * 只用未删除的向量重建索引并重新分配编号
+     */
+    private void rebuild() {
+        HnswIndex rebuilt = new HnswIndex();
+        List<String> rebuiltRequests = new ArrayList<>();
+        List<String> rebuiltFilenames = new ArrayList<>();
+        idsByFilename.clear();
+        for (int id = 0; id < index.size(); id++) {
+            if (removed.contains(id)) {
+                continue;
+            }
+            int newId = rebuilt.add(index.vector(id));
+            rebuiltRequests.add(requests.get(id));
+            rebuiltFilenames.add(filenames.get(id));
+            idsByFilename.computeIfAbsent(filenames.get(id), k -> new ArrayList<>()).add(newId);
+        }
+        index = rebuilt;
+        requests = rebuiltRequests;
+        filenames = rebuiltFilenames;
+        removed.clear();
+        rebuilds++;
+    }
+
+    /**
+     * 是否已登记该文件
+     */
+    public synchronized boolean containsFile(String filename) {
+        return idsByFilename.containsKey(filename);
+    }
+
+    /**
+     * 查找与需求最相似的已有文件，相似度低于阈值时返回null
+     */
+    public Match lookup(String request) {
+        Match match = nearest(request);
+        if (match == null || match.similarity < threshold) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return match;
+    }
+
+    /**
+     * 查找最相似的已有文件（不考虑阈值，用于离线评估）
+     */
+    Match nearest(String request) {
+        float[] vector = embedder.embed(request);
+        if (isZero(vector)) {
+            return null;
+        }
+        while (true) {
+            HnswIndex searched;
+            int candidates;
+            synchronized (this) {
+                searched = index;
+                // 候选数加上已删除的向量数，保证候选全部已删除时仍能找到未删除的最近邻
+                candidates = SEARCH_CANDIDATES + removed.size();
+            }
+            List<HnswIndex.Result> results = searched.search(vector, candidates);
+            synchronized (this) {
+                if (searched != index) {
+                    // 查找期间索引被重建，编号已失效，重新查找
+                    continue;
+                }
+                for (HnswIndex.Result result : results) {
+                    if (!removed.contains(result.getId())) {
+                        return new Match(filenames.get(result.getId()), requests.get(result.getId()), result.getSimilarity());
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    private static boolean isZero(float[] vector) {
+        for (float v : vector) {
+            if (v != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", index.size() - removed.size());
+        stats.put("files", idsByFilename.size());
+        stats.put("removed", removed.size());
+        stats.put("rebuilds", rebuilds);
+        stats.put("threshold", threshold);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+}
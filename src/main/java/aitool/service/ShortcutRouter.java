@@ -0,0 +1,254 @@
+package aitool.service;
+
+import aitool.config.Config;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+
+/**
+ * 快捷模板路由
+ * 规则从配置文件加载（SHORTCUTS_FILE，未配置时使用内置的 /web/shortcuts.json），每条规则对应一个工具：
+ * exact 为完全匹配的需求，contains 为需求中包含即可命中的触发词，maxLength 限制 contains 规则只匹配足够简单的需求。
+ * 完全匹配使用哈希表查找；所有触发词构建为一个Aho-Corasick自动机，一次遍历需求即可找出全部命中的规则，
+ * 多条规则命中时按配置文件中的顺序取第一条
+ */
+public class ShortcutRouter {
+
+    private static final String DEFAULT_RESOURCE = "/web/shortcuts.json";
+
+    /**
+     * 路由规则
+     */
+    static final class Rule {
+        final String tool;
+        final List<String> exact;
+        final List<String> contains;
+        final int maxLength;
+
+        Rule(String tool, List<String> exact, List<String> contains, int maxLength) {
+            this.tool = tool;
+            this.exact = exact;
+            this.contains = contains;
+            this.maxLength = maxLength;
+        }
+    }
+
+    private final List<Rule> rules;
+    private final Map<String, Integer> exactRules = new HashMap<>();
+
+    // Aho-Corasick自动机：goto表、失败指针、每个状态命中的规则编号（含失败链上的，升序即优先级顺序）
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private int[] failure;
+    private int[][] matches;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLongArray exactHits;
+    private final AtomicLongArray containsHits;
+    private int phraseCount;
+
+    public ShortcutRouter(List<Rule> rules) {
+        this.rules = rules;
+        this.exactHits = new AtomicLongArray(rules.size());
+        this.containsHits = new AtomicLongArray(rules.size());
+        build();
+    }
+
+    /**
+     * 从配置文件加载规则，加载失败时返回没有规则的路由（所有需求交给后续步骤处理）
+     */
+    public static ShortcutRouter load() {
+        String path = Config.get("SHORTCUTS_FILE", "");
+        try {
+            if (path != null && !path.trim().isEmpty()) {
+                File file = new File(path.trim());
+                try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    ShortcutRouter router = new ShortcutRouter(parse(reader));
+                    System.out.println("✓ 已加载快捷模板规则: " + file.getAbsolutePath() + "（" + router.rules.size() + " 条）");
+                    return router;
+                }
+            }
+            try (InputStream is = ShortcutRouter.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+                if (is == null) {
+                    System.err.println("警告: 无法加载快捷模板规则: " + DEFAULT_RESOURCE);
+                    return new ShortcutRouter(new ArrayList<>());
+                }
+                return new ShortcutRouter(parse(new InputStreamReader(is, StandardCharsets.UTF_8)));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠ 加载快捷模板规则失败: " + e.getMessage());
+            return new ShortcutRouter(new ArrayList<>());
+        }
+    }
+
+    static List<Rule> parse(Reader reader) {
+        JsonObject root = JsonParser.parseReader(reader).getAsJsonObject();
+        List<Rule> rules = new ArrayList<>();
+        for (JsonElement element : root.getAsJsonArray("rules")) {
+            JsonObject rule = element.getAsJsonObject();
+            rules.add(new Rule(
+                rule.get("tool").getAsString(),
+                phrases(rule.getAsJsonArray("exact")),
+                phrases(rule.getAsJsonArray("contains")),
+                rule.has("maxLength") ? rule.get("maxLength").getAsInt() : Integer.MAX_VALUE));
+        }
+        return rules;
+    }
+
+    private static List<String> phrases(JsonArray array) {
+        List<String> phrases = new ArrayList<>();
+        if (array != null) {
+            for (JsonElement element : array) {
+                String phrase = element.getAsString().trim().toLowerCase();
+                if (!phrase.isEmpty()) {
+                    phrases.add(phrase);
+                }
+            }
+        }
+        return phrases;
+    }
+
+    private void build() {
+        transitions.add(new HashMap<>());
+        List<TreeSet<Integer>> outputs = new ArrayList<>();
+        outputs.add(new TreeSet<>());
+
+        for (int r = 0; r < rules.size(); r++) {
+            Rule rule = rules.get(r);
+            for (String phrase : rule.exact) {
+                exactRules.putIfAbsent(phrase, r);
+            }
+            for (String phrase : rule.contains) {
+                int state = 0;
+                for (int i = 0; i < phrase.length(); i++) {
+                    Integer next = transitions.get(state).get(phrase.charAt(i));
+                    if (next == null) {
+                        next = transitions.size();
+                        transitions.add(new HashMap<>());
+                        outputs.add(new TreeSet<>());
+                        transitions.get(state).put(phrase.charAt(i), next);
+                    }
+                    state = next;
+                }
+                outputs.get(state).add(r);
+                phraseCount++;
+            }
+        }
+
+        // 广度优先计算失败指针，并把失败链上的命中规则合并到当前状态
+        failure = new int[transitions.size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                int child = edge.getValue();
+                int fallback = failure[state];
+                while (fallback != 0 && !transitions.get(fallback).containsKey(edge.getKey())) {
+                    fallback = failure[fallback];
+                }
+                Integer target = state == 0 ? null : transitions.get(fallback).get(edge.getKey());
+                failure[child] = target != null ? target : 0;
+                outputs.get(child).addAll(outputs.get(failure[child]));
+                queue.add(child);
+            }
+        }
+
+        matches = new int[outputs.size()][];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = outputs.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * 查找需求对应的工具：先完全匹配，再单次遍历匹配触发词
+     * @param request 已去除首尾空白并转为小写的需求
+     * @param available 工具是否可用（不可用的规则跳过）
+     * @return 工具名称，没有命中时返回null
+     */
+    public String route(String request, Predicate<String> available) {
+        lookups.incrementAndGet();
+
+        Integer exact = exactRules.get(request);
+        if (exact != null && available.test(rules.get(exact).tool)) {
+            exactHits.incrementAndGet(exact);
+            return rules.get(exact).tool;
+        }
+
+        // 只保留长度限制允许的规则中优先级最高的一条（跳过不可用的工具）
+        int best = Integer.MAX_VALUE;
+        int state = 0;
+        for (int i = 0; i < request.length(); i++) {
+            char c = request.charAt(i);
+            while (state != 0 && !transitions.get(state).containsKey(c)) {
+                state = failure[state];
+            }
+            state = transitions.get(state).getOrDefault(c, 0);
+            for (int rule : matches[state]) {
+                if (rule >= best) {
+                    break;
+                }
+                if (request.length() < rules.get(rule).maxLength && available.test(rules.get(rule).tool)) {
+                    best = rule;
+                    break;
+                }
+            }
+        }
+        if (best == Integer.MAX_VALUE) {
+            return null;
+        }
+        containsHits.incrementAndGet(best);
+        return rules.get(best).tool;
+    }
+
+    /**
+     * 获取统计信息（各工具的命中次数和命中率）
+     */
+    public Map<String, Object> getStats() {
+        long total = lookups.get();
+        long hits = 0;
+        // 同一工具可能对应多条规则，按工具汇总
+        Map<String, long[]> counts = new LinkedHashMap<>();
+        for (int r = 0; r < rules.size(); r++) {
+            long[] toolCounts = counts.computeIfAbsent(rules.get(r).tool, k -> new long[2]);
+            toolCounts[0] += exactHits.get(r);
+            toolCounts[1] += containsHits.get(r);
+            hits += exactHits.get(r) + containsHits.get(r);
+        }
+        Map<String, Object> byTool = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> e : counts.entrySet()) {
+            long[] toolCounts = e.getValue();
+            Map<String, Object> toolStats = new LinkedHashMap<>();
+            toolStats.put("exact", toolCounts[0]);
+            toolStats.put("contains", toolCounts[1]);
+            toolStats.put("hitRate", total == 0 ? 0 : Math.round((toolCounts[0] + toolCounts[1]) * 10000.0 / total) / 10000.0);
+            byTool.put(e.getKey(), toolStats);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rules", rules.size());
+        stats.put("phrases", phraseCount + exactRules.size());
+        stats.put("lookups", total);
+        stats.put("hits", hits);
+        stats.put("misses", total - hits);
+        stats.put("hitRate", total == 0 ? 0 : Math.round(hits * 10000.0 / total) / 10000.0);
+        stats.put("byTool", byTool);
+        return stats;
+    }
+}
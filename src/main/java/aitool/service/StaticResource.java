@@ -0,0 +1,69 @@
+package aitool.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 内存中的静态资源（首页等classpath资源）
+ * 启动时读取一次，同时保存UTF-8字节、gzip压缩字节和强ETag，每次请求直接发送，不再读取和编码
+ */
+public final class StaticResource {
+
+    private final byte[] bytes;
+    private final byte[] gzipBytes;
+    private final String etag;
+    private final long lastModified;
+
+    private StaticResource(byte[] bytes) {
+        this.bytes = bytes;
+        this.gzipBytes = PrecompressedFiles.gzip(bytes);
+        this.etag = HttpCaching.strongETag(bytes);
+        // 资源随程序发布，以加载时间作为修改时间（精确到秒）
+        this.lastModified = System.currentTimeMillis() / 1000 * 1000;
+    }
+
+    /**
+     * 从classpath加载资源，资源不存在或读取失败时返回null
+     */
+    public static StaticResource load(String resourcePath) {
+        try (InputStream is = StaticResource.class.getResourceAsStream(resourcePath)) {
+            if (is == null) {
+                System.err.println("警告: 无法加载资源文件: " + resourcePath);
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new StaticResource(out.toByteArray());
+        } catch (IOException e) {
+            System.err.println("加载资源文件失败: " + resourcePath + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     * 原始字节（共享数组，调用方不得修改）
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * gzip压缩字节（共享数组，调用方不得修改）
+     */
+    public byte[] getGzipBytes() {
+        return gzipBytes;
+    }
+
+    public String getETag() {
+        return etag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+}
@@ -1,65 +1,238 @@
 package aitool.service;
 
+import aitool.config.Config;
+
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * HTML工具模板
- * 从资源文件加载HTML模板，便于管理和维护
+ * 从资源文件加载HTML模板，加载时一次性编译：按占位符（{title}、{description}、{placeholder}）切分为片段，
+ * 渲染时单次遍历片段拼接。
+ * 编译后的模板不可变，整个模板表在重新加载时原子替换，读取方无需加锁
+ *
+ * 配置了外部模板目录（TEMPLATE_DIR）时，目录中的每个 名称.html 都注册为模板（同名时覆盖内置模板），
+ * 并通过WatchService监听目录：变化事件合并（防抖）后只重新编译发生变化的文件，无需重启即可上线新模板
  */
 public class Templates {
-    
+
     private static final String TEMPLATE_DIR = "/web/templates/";
-    private static final Map<String, String> TEMPLATES = new HashMap<>();
-    
+    private static final String DEFAULT_TEMPLATE = "custom_tool";
+    private static final String[] PLACEHOLDERS = {"{title}", "{description}", "{placeholder}"};
+    private static final int TITLE = 0;
+    private static final int DESCRIPTION = 1;
+    private static final int PLACEHOLDER = 2;
+    // 缺少对应模板文件时使用custom_tool代替的模板
+    private static final String[] DEFAULT_ALIASES = {"text_replace", "data_converter", "json_formatter", "csv_processor"};
+    private static final File EXTERNAL_DIR = externalDir();
+
+    // 渲染缓冲区（每个线程复用一个）
+    private static final ThreadLocal<StringBuilder> RENDER_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(8192));
+
+    private static volatile Map<String, Template> templates = Collections.emptyMap();
+    // 内置（classpath）模板，外部模板被删除时回退到内置版本
+    private static Map<String, Template> builtinTemplates = Collections.emptyMap();
+    private static volatile Consumer<Set<String>> changeListener;
+    private static Thread watcherThread;
+
     static {
-        // 初始化时加载所有模板
-        loadTemplates();
+        // 初始化时加载所有模板，并监听外部模板目录
+        reloadTemplates();
+        startWatching();
     }
-    
+
     /**
-     * 从资源文件加载模板
+     * 编译后的模板（不可变）
+     * 内容 = literals[0] + 值(slots[0]) + literals[1] + ... + literals[n]
      */
-    private static void loadTemplates() {
+    public static final class Template {
+        private final String name;
+        private final String content;
+        private final String[] literals;
+        private final int[] slots;
+
+        private Template(String name, String content) {
+            this.name = name;
+            this.content = content;
+
+            List<String> literalList = new ArrayList<>();
+            List<Integer> slotList = new ArrayList<>();
+            int start = 0;
+            int pos = content.indexOf('{');
+            while (pos >= 0) {
+                int slot = placeholderAt(content, pos);
+                if (slot >= 0) {
+                    literalList.add(content.substring(start, pos));
+                    slotList.add(slot);
+                    start = pos + PLACEHOLDERS[slot].length();
+                    pos = content.indexOf('{', start);
+                } else {
+                    pos = content.indexOf('{', pos + 1);
+                }
+            }
+            literalList.add(content.substring(start));
+            this.literals = literalList.toArray(new String[0]);
+            this.slots = new int[slotList.size()];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = slotList.get(i);
+            }
+        }
+
+        private static int placeholderAt(String content, int pos) {
+            for (int i = 0; i < PLACEHOLDERS.length; i++) {
+                if (content.startsWith(PLACEHOLDERS[i], pos)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 模板原文（未替换占位符）
+         */
+        public String getContent() {
+            return content;
+        }
+
+        /**
+         * 是否为静态模板（不含占位符，渲染时直接返回原文）
+         */
+        public boolean isStatic() {
+            return slots.length == 0;
+        }
+
+        /**
+         * 替换占位符，单次遍历片段完成（静态模板直接返回原文）
+         * 替换值按原样插入，不会再被当作占位符处理
+         */
+        public String render(String title, String description, String placeholder) {
+            if (slots.length == 0) {
+                return content;
+            }
+            StringBuilder buffer = RENDER_BUFFER.get();
+            buffer.setLength(0);
+            for (int i = 0; i < slots.length; i++) {
+                buffer.append(literals[i]);
+                switch (slots[i]) {
+                    case TITLE:
+                        buffer.append(title);
+                        break;
+                    case DESCRIPTION:
+                        buffer.append(description);
+                        break;
+                    case PLACEHOLDER:
+                    default:
+                        buffer.append(placeholder);
+                        break;
+                }
+            }
+            buffer.append(literals[literals.length - 1]);
+            String result = buffer.toString();
+            if (buffer.capacity() > 4 * Math.max(8192, result.length())) {
+                // 避免个别超大渲染结果长期占用线程缓冲区
+                RENDER_BUFFER.remove();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 从资源文件加载并编译内置模板
+     */
+    private static Map<String, Template> loadBuiltinTemplates() {
         String[] templateNames = {
             "custom_tool",
-            "table_generator", 
+            "table_generator",
             "calculator",
             "text_replace",
             "data_converter",
             "json_formatter",
             "csv_processor"
         };
-        
+
+        Map<String, Template> loaded = new HashMap<>();
         for (String templateName : templateNames) {
             String content = loadTemplateFromResource(templateName + ".html");
             if (content != null) {
-                TEMPLATES.put(templateName, content);
+                loaded.put(templateName, new Template(templateName, content));
             }
         }
-        
-        // 如果text_replace等模板文件不存在，使用custom_tool作为默认模板
-        String customTool = TEMPLATES.get("custom_tool");
+        return loaded;
+    }
+
+    /**
+     * 如果text_replace等模板文件不存在，使用custom_tool作为默认模板
+     * （先移除旧的代替项，custom_tool本身变化时代替项随之更新）
+     */
+    private static void applyDefaultAliases(Map<String, Template> map) {
+        map.entrySet().removeIf(e -> !e.getKey().equals(e.getValue().getName()));
+        Template customTool = map.get(DEFAULT_TEMPLATE);
         if (customTool != null) {
-            if (!TEMPLATES.containsKey("text_replace")) {
-                TEMPLATES.put("text_replace", customTool);
-            }
-            if (!TEMPLATES.containsKey("data_converter")) {
-                TEMPLATES.put("data_converter", customTool);
-            }
-            if (!TEMPLATES.containsKey("json_formatter")) {
-                TEMPLATES.put("json_formatter", customTool);
-            }
-            if (!TEMPLATES.containsKey("csv_processor")) {
-                TEMPLATES.put("csv_processor", customTool);
+            for (String alias : DEFAULT_ALIASES) {
+                map.putIfAbsent(alias, customTool);
             }
         }
     }
-    
+
+    /**
+     * 外部模板目录（TEMPLATE_DIR），未配置或不是目录时返回null
+     */
+    private static File externalDir() {
+        String path = Config.get("TEMPLATE_DIR", "");
+        if (path == null || path.trim().isEmpty()) {
+            return null;
+        }
+        File dir = new File(path.trim());
+        if (!dir.isDirectory()) {
+            System.err.println("⚠ 模板目录不存在，仅使用内置模板: " + dir.getAbsolutePath());
+            return null;
+        }
+        return dir;
+    }
+
+    /**
+     * 读取并编译外部模板文件，读取失败时返回null
+     */
+    private static Template loadExternalTemplate(File file) {
+        String name = file.getName();
+        try {
+            String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            return new Template(name.substring(0, name.length() - ".html".length()), content);
+        } catch (IOException e) {
+            System.err.println("⚠ 加载外部模板失败: " + file.getAbsolutePath() + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    private static boolean isTemplateFile(String filename) {
+        return filename.toLowerCase().endsWith(".html") && !filename.startsWith(".");
+    }
+
     /**
      * 从资源文件读取HTML模板
      */
@@ -70,7 +243,7 @@ public class Templates {
                 System.err.println("警告: 无法加载模板文件: " + resourcePath);
                 return null;
             }
-            
+
             try (BufferedReader reader = new BufferedReader(
                     new InputStreamReader(is, StandardCharsets.UTF_8))) {
                 StringBuilder content = new StringBuilder();
@@ -86,37 +259,206 @@ public class Templates {
             return null;
         }
     }
-    
+
     /**
-     * 获取模板内容
+     * 启动外部模板目录监听（未配置外部目录时不启动）
      */
-    public static String getTemplate(String templateName) {
-        String template = TEMPLATES.get(templateName);
+    private static synchronized void startWatching() {
+        if (EXTERNAL_DIR == null || watcherThread != null) {
+            return;
+        }
+        WatchService service;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+            EXTERNAL_DIR.toPath().register(service,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            System.err.println("⚠ 无法监听模板目录，模板修改后需重启生效: " + e.getMessage());
+            return;
+        }
+        long debounceMillis = Math.max(0, Config.getLong("TEMPLATE_RELOAD_DEBOUNCE_MS", 500));
+        watcherThread = new Thread(() -> watchLoop(service, debounceMillis), "template-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        System.out.println("✓ 正在监听模板目录: " + EXTERNAL_DIR.getAbsolutePath());
+    }
+
+    /**
+     * 收集变化的文件名，目录静默debounceMillis后统一处理（编辑器保存时通常连续触发多次事件）
+     */
+    private static void watchLoop(WatchService service, long debounceMillis) {
+        Set<String> pending = new HashSet<>();
+        boolean overflow = false;
+        while (true) {
+            WatchKey key;
+            try {
+                key = pending.isEmpty() && !overflow
+                    ? service.take()
+                    : service.poll(debounceMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            if (key == null) {
+                if (overflow) {
+                    // 事件丢失，重新加载全部模板
+                    reloadTemplates();
+                } else {
+                    applyChanges(pending);
+                }
+                pending = new HashSet<>();
+                overflow = false;
+                continue;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                    continue;
+                }
+                String filename = ((Path) event.context()).toString();
+                if (isTemplateFile(filename)) {
+                    pending.add(filename);
+                }
+            }
+
+            if (!key.reset()) {
+                // 目录已不可访问，停止监听
+                return;
+            }
+        }
+    }
+
+    /**
+     * 只重新编译发生变化的外部模板文件，生成新的模板表后原子替换
+     */
+    private static synchronized void applyChanges(Set<String> filenames) {
+        if (filenames.isEmpty()) {
+            return;
+        }
+        Map<String, Template> next = new HashMap<>(templates);
+        Set<String> changed = new HashSet<>();
+        for (String filename : filenames) {
+            String name = filename.substring(0, filename.length() - ".html".length());
+            File file = new File(EXTERNAL_DIR, filename);
+            if (file.isFile()) {
+                Template template = loadExternalTemplate(file);
+                if (template == null) {
+                    // 读取失败时保留旧版本
+                    continue;
+                }
+                next.put(name, template);
+            } else {
+                // 外部模板被删除，回退到同名内置模板
+                Template builtin = builtinTemplates.get(name);
+                if (builtin != null) {
+                    next.put(name, builtin);
+                } else {
+                    next.remove(name);
+                }
+            }
+            changed.add(name);
+        }
+        applyDefaultAliases(next);
+        templates = Collections.unmodifiableMap(next);
+        System.out.println("↻ 已重新加载模板: " + changed);
+        fireChanged(changed);
+    }
+
+    private static void fireChanged(Set<String> names) {
+        Consumer<Set<String>> listener = changeListener;
+        if (listener != null && !names.isEmpty()) {
+            listener.accept(Collections.unmodifiableSet(names));
+        }
+    }
+
+    /**
+     * 设置模板变化监听器（参数为新增、修改或删除的模板名称）
+     */
+    public static void setChangeListener(Consumer<Set<String>> listener) {
+        changeListener = listener;
+    }
+
+    /**
+     * 当前全部模板名称
+     */
+    public static Set<String> names() {
+        return templates.keySet();
+    }
+
+    /**
+     * 是否存在指定名称的模板（不回退到默认模板）
+     */
+    public static boolean contains(String templateName) {
+        return templates.containsKey(templateName);
+    }
+
+    /**
+     * 获取编译后的模板，指定的模板不存在时返回自定义工具模板，都不存在时返回null
+     */
+    public static Template get(String templateName) {
+        Map<String, Template> current = templates;
+        Template template = current.get(templateName);
         if (template == null) {
             // 如果指定的模板不存在，返回自定义工具模板
-            template = TEMPLATES.get("custom_tool");
+            template = current.get(DEFAULT_TEMPLATE);
             if (template == null) {
                 System.err.println("警告: 模板 '" + templateName + "' 不存在，且默认模板也不存在");
-                return "";
             }
         }
         return template;
     }
-    
+
+    /**
+     * 获取模板内容
+     */
+    public static String getTemplate(String templateName) {
+        Template template = get(templateName);
+        return template != null ? template.getContent() : "";
+    }
+
     /**
-     * 格式化模板（替换占位符）
+     * 渲染指定模板（替换占位符）
+     */
+    public static String render(String templateName, String title, String description, String placeholder) {
+        Template template = get(templateName);
+        return template != null ? template.render(title, description, placeholder) : "";
+    }
+
+    /**
+     * 格式化任意模板字符串（替换占位符），每次临时编译
+     * 已加载的模板请使用render(name, ...)，直接使用加载时的编译结果
      */
     public static String formatTemplate(String template, String title, String description, String placeholder) {
-        return template.replace("{title}", title)
-                      .replace("{description}", description)
-                      .replace("{placeholder}", placeholder);
+        return new Template("", template).render(title, description, placeholder);
     }
-    
+
     /**
      * 重新加载所有模板（用于模板文件更新后）
+     * 新模板表加载完成后整体替换，加载期间读取方仍使用旧模板表
      */
-    public static void reloadTemplates() {
-        TEMPLATES.clear();
-        loadTemplates();
+    public static synchronized void reloadTemplates() {
+        Map<String, Template> builtin = loadBuiltinTemplates();
+        Map<String, Template> next = new HashMap<>(builtin);
+        if (EXTERNAL_DIR != null) {
+            File[] files = EXTERNAL_DIR.listFiles((d, name) -> isTemplateFile(name));
+            if (files != null) {
+                for (File file : files) {
+                    Template template = loadExternalTemplate(file);
+                    if (template != null) {
+                        next.put(template.getName(), template);
+                    }
+                }
+            }
+        }
+        applyDefaultAliases(next);
+
+        Set<String> changed = new HashSet<>(templates.keySet());
+        changed.addAll(next.keySet());
+        builtinTemplates = builtin;
+        templates = Collections.unmodifiableMap(next);
+        fireChanged(changed);
     }
 }
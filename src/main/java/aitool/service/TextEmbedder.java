@@ -0,0 +1,144 @@
+package aitool.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 本地文本向量化（哈希n-gram）
+ * 去掉“帮我做个”“生成一个”“工具”等与具体需求无关的修饰词和词尾的“器”后，把文本切成单元（一个汉字或一个英文单词/数字），
+ * 取1~3元组作为特征，用特征哈希映射到固定维度并做L2归一化，两个向量的点积即余弦相似度。
+ * 不依赖外部模型，同义改写（如“做个计算器”和“我需要一个计算器”）能得到很高的相似度
+ */
+public class TextEmbedder {
+
+    public static final int DEFAULT_DIMENSION = 512;
+
+    // 与具体需求无关的修饰词（按长度从长到短匹配）
+    private static final String[] FILLER_WORDS = {
+        "帮我生成", "帮我做", "给我做", "我需要", "我想要", "我想做", "请帮我", "能不能",
+        "生成一个", "做一个", "创建一个", "制作一个", "写一个", "来一个",
+        "帮我", "给我", "我要", "需要", "想要", "做个", "一个", "一款", "生成", "创建", "制作",
+        "工具", "页面", "网页", "在线", "简单的", "简易", "请", "吧", "html"
+    };
+
+    // 词尾的“器”：“倒计时”和“倒计时器”是同一工具，去掉后只有多出的限定词（“BMI计算器”比“计算器”多的“BMI”）拉低相似度
+    private static final Pattern TOOL_SUFFIX = Pattern.compile("器(?!\\p{IsHan})");
+
+    private static final double[] NGRAM_WEIGHTS = {1.0, 1.5, 1.0};
+
+    private final int dimension;
+
+    public TextEmbedder() {
+        this(DEFAULT_DIMENSION);
+    }
+
+    public TextEmbedder(int dimension) {
+        this.dimension = dimension;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * 计算文本向量（已归一化），没有有效内容时返回全零向量
+     */
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        List<String> units = units(clean(text));
+        for (int n = 1; n <= NGRAM_WEIGHTS.length; n++) {
+            for (int i = 0; i + n <= units.size(); i++) {
+                StringBuilder gram = new StringBuilder();
+                for (int j = i; j < i + n; j++) {
+                    if (j > i) {
+                        gram.append('\u0001');
+                    }
+                    gram.append(units.get(j));
+                }
+                int hash = mix(gram.toString().hashCode() * 31 + n);
+                int index = Math.floorMod(hash, dimension);
+                // 用另一部分哈希位决定符号，降低哈希冲突带来的偏差
+                float sign = (hash & 0x40000000) == 0 ? 1f : -1f;
+                vector[index] += sign * NGRAM_WEIGHTS[n - 1];
+            }
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    /**
+     * 余弦相似度（两个向量均已归一化）
+     */
+    public static float similarity(float[] a, float[] b) {
+        float dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    /**
+     * 转小写并去掉修饰词、词尾的“器”和标点
+     */
+    static String clean(String text) {
+        if (text == null) {
+            return "";
+        }
+        String cleaned = text.toLowerCase();
+        for (String filler : FILLER_WORDS) {
+            cleaned = cleaned.replace(filler, " ");
+        }
+        cleaned = TOOL_SUFFIX.matcher(cleaned).replaceAll("");
+        return cleaned.replaceAll("[^\\p{IsHan}a-z0-9]+", " ").trim();
+    }
+
+    /**
+     * 切分为单元：每个汉字一个单元，连续的英文字母或数字一个单元
+     */
+    static List<String> units(String text) {
+        List<String> units = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                word.append(c);
+                continue;
+            }
+            if (word.length() > 0) {
+                units.add(word.toString());
+                word.setLength(0);
+            }
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) {
+                units.add(String.valueOf(c));
+            }
+        }
+        if (word.length() > 0) {
+            units.add(word.toString());
+        }
+        return units;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static void normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package aitool.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * HtmlGenerator：重复生成并保存相同需求时，第二次直接命中内容缓存
+ */
+class HtmlGeneratorTest {
+
+    private static final String REQUEST = "生成一个番茄钟计时器";
+    private static final String HTML = "<!DOCTYPE html><html><head><title>番茄钟</title></head>"
+        + "<body><h1>番茄钟计时器</h1></body></html>";
+
+    @TempDir
+    File dir;
+
+    private String userDir;
+    private HtmlGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        // 输出目录位于 user.dir/output
+        userDir = System.getProperty("user.dir");
+        System.setProperty("user.dir", dir.getAbsolutePath());
+        generator = new HtmlGenerator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        // 输出目录删除后目录监听自行停止
+        System.setProperty("user.dir", userDir);
+    }
+
+    @Test
+    void sameRequestTwiceHitsContentCache() throws Exception {
+        File outputDir = new File(dir, "output");
+        generator.saveToOutput(outputDir, REQUEST, HTML);
+
+        // 与 /api/generate 相同：每次生成后都保存到输出目录
+        assertEquals(HTML, generator.generateTool(REQUEST));
+        generator.saveToOutput(outputDir, REQUEST, HTML);
+
+        HtmlContentCache contentCache = HtmlContentCache.getInstance();
+        Map<String, Object> before = contentCache.getStats();
+        assertEquals(HTML, generator.generateTool(REQUEST));
+        generator.saveToOutput(outputDir, REQUEST, HTML);
+        Map<String, Object> after = contentCache.getStats();
+
+        assertEquals((Long) before.get("hits") + 1, after.get("hits"));
+        assertEquals(before.get("misses"), after.get("misses"));
+    }
+}
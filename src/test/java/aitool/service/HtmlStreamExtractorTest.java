@@ -0,0 +1,86 @@
+package aitool.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * HtmlStreamExtractor：一次性提取与按任意大小分片输入的结果必须一致，流式回调拼接后等于最终结果
+ */
+class HtmlStreamExtractorTest {
+
+    @Test
+    void skipsTagMentionedInProseBeforeFence() {
+        assertExtracts("<!DOCTYPE html>\n<html><body>hi</body></html>",
+            "Here is the <html> code:\n```html\n<!DOCTYPE html>\n<html><body>hi</body></html>\n```\nEnjoy!");
+    }
+
+    @Test
+    void skipsTagMentionedInProseBeforeDoctype() {
+        assertExtracts("<!doctype html>\n<html>y</html>",
+            "The <html> tag wraps a page.\n\n   <!doctype html>\n<html>y</html>");
+    }
+
+    @Test
+    void plainDocument() {
+        assertExtracts("<!DOCTYPE html><html></html>", "<!DOCTYPE html><html></html>");
+    }
+
+    @Test
+    void dropsProseAroundUnfencedDocument() {
+        assertExtracts("<!DOCTYPE html>\n<html>x</html>",
+            "Sure, here it is:\n<!DOCTYPE html>\n<html>x</html>\nHope this helps");
+    }
+
+    @Test
+    void fenceWithoutLanguage() {
+        assertExtracts("<html>x</html>", "```\n<html>x</html>\n```");
+    }
+
+    @Test
+    void fencedContentWithoutHtmlTag() {
+        assertExtracts("<div>x</div>", "```html\n<div>x</div>\n```\ndone");
+    }
+
+    @Test
+    void textWithoutHtml() {
+        assertExtracts("just text", "  just text  ");
+    }
+
+    @Test
+    void doctypeInMiddleOfLine() {
+        assertExtracts("<!DOCTYPE html><html>x</html>", "Sure! <!DOCTYPE html><html>x</html>");
+    }
+
+    @Test
+    void upperCaseTags() {
+        assertExtracts("<HTML>\n<body>Hi</body>\n</HTML>", "<HTML>\n<body>Hi</body>\n</HTML> trailing");
+    }
+
+    @Test
+    void singleBackticksInsideFence() {
+        assertExtracts("<html><script>var s=`a`;</script></html>",
+            "```html\n<html><script>var s=`a`;</script></html>\n```");
+        assertExtracts("<html><script>var s=`a`;</script>",
+            "```html\n<html><script>var s=`a`;</script>\n```");
+    }
+
+    @Test
+    void trailingWhitespaceWithoutCloseTag() {
+        assertExtracts("<html>abc", "<html>abc   \n");
+    }
+
+    private static void assertExtracts(String expected, String content) {
+        assertEquals(expected, HtmlStreamExtractor.extract(content), "一次性提取");
+        for (int size = 1; size <= content.length(); size++) {
+            StringBuilder deltas = new StringBuilder();
+            HtmlStreamExtractor extractor = new HtmlStreamExtractor(deltas::append);
+            for (int i = 0; i < content.length(); i += size) {
+                extractor.accept(content.substring(i, Math.min(content.length(), i + size)));
+            }
+            String result = extractor.finish();
+            assertEquals(expected, result, "分片大小 " + size);
+            assertEquals(result, deltas.toString(), "分片大小 " + size + " 的流式输出");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package aitool.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * OutputFileIndex：重新扫描或重复登记时只通知新增、删除和修改过的文件
+ */
+class OutputFileIndexTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void firstScanDoesNotNotify() throws IOException {
+        write("a.html", "a");
+        Set<String> changed = new HashSet<>();
+        OutputFileIndex index = new OutputFileIndex(dir);
+        index.setChangeListener(changed::add);
+        index.rebuild();
+        assertTrue(changed.isEmpty());
+    }
+
+    @Test
+    void rescanNotifiesOnlyChangedFiles() throws IOException {
+        write("same.html", "same");
+        write("modified.html", "old");
+        write("deleted.html", "gone");
+        Set<String> changed = new HashSet<>();
+        OutputFileIndex index = new OutputFileIndex(dir);
+        index.setChangeListener(changed::add);
+        index.rebuild();
+
+        write("modified.html", "new content");
+        assertTrue(new File(dir, "deleted.html").delete());
+        write("added.html", "added");
+        index.rebuild();
+
+        assertEquals(new HashSet<>(Arrays.asList("modified.html", "deleted.html", "added.html")), changed);
+    }
+
+    @Test
+    void reAddingUnchangedFileDoesNotNotify() throws IOException {
+        File file = write("a.html", "a");
+        Set<String> changed = new HashSet<>();
+        OutputFileIndex index = new OutputFileIndex(dir);
+        index.setChangeListener(changed::add);
+        index.rebuild();
+
+        index.add(file);
+        assertTrue(changed.isEmpty());
+
+        write("a.html", "changed");
+        index.add(file);
+        assertEquals(new HashSet<>(Arrays.asList("a.html")), changed);
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}